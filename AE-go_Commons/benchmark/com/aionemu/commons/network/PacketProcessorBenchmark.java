@@ -0,0 +1,178 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.commons.network;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.aionemu.commons.network.packet.BaseClientPacket;
+
+/**
+ * Burst of client packets where every tenth handler blocks as if waiting on database, executed by
+ * {@link PacketProcessor} with different min/max thread settings. Prints time to drain the burst and how long
+ * connections waited for a working thread.
+ * 
+ * @author ATracer
+ */
+public class PacketProcessorBenchmark
+{
+	private static final int		CONNECTIONS	= 200;
+	private static final int		PACKETS		= 10;
+	private static final long		BLOCK_TIME	= 10;
+	private static final long		WORK_TIME	= TimeUnit.MICROSECONDS.toNanos(20);
+
+	private static final int[][]	SETTINGS	= { { 1, 1 }, { 1, 8 }, { 4, 32 }, { 8, 64 } };
+
+	public static void main(String[] args) throws Exception
+	{
+		ServerSocketChannel server = ServerSocketChannel.open();
+		server.socket().bind(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0));
+		Dispatcher dispatcher = new AcceptReadWriteDispatcherImpl("Benchmark Dispatcher", null);
+
+		List<SocketChannel> clients = new ArrayList<SocketChannel>();
+		List<BenchmarkConnection> connections = new ArrayList<BenchmarkConnection>();
+		for(int i = 0; i < CONNECTIONS; i++)
+		{
+			clients.add(SocketChannel.open(server.socket().getLocalSocketAddress()));
+			SocketChannel sc = server.accept();
+			sc.configureBlocking(false);
+			connections.add(new BenchmarkConnection(sc, dispatcher));
+		}
+
+		for(int[] setting : SETTINGS)
+		{
+			PacketProcessor<BenchmarkConnection> processor = new PacketProcessor<BenchmarkConnection>(setting[0],
+				setting[1]);
+			CountDownLatch done = new CountDownLatch(CONNECTIONS * PACKETS);
+
+			long start = System.nanoTime();
+			for(int p = 0; p < PACKETS; p++)
+			{
+				for(int c = 0; c < CONNECTIONS; c++)
+				{
+					BenchmarkPacket packet = new BenchmarkPacket((c + p) % 10 == 0, done);
+					packet.setConnection(connections.get(c));
+					processor.executePacket(packet);
+				}
+			}
+			done.await();
+			long time = System.nanoTime() - start;
+
+			System.out.println(String.format("min %d, max %d threads: %d ms, %d packets/s, %d threads used, "
+				+ "avg wait %.1f ms, max wait %.1f ms", setting[0], setting[1], time / 1000000,
+				CONNECTIONS * PACKETS * 1000000000L / time, processor.getThreadCount(), processor
+					.getAverageWaitTime(), processor.getMaxWaitTime()));
+		}
+
+		for(SocketChannel client : clients)
+			client.close();
+		server.close();
+		/** working threads of packet processors never stop */
+		System.exit(0);
+	}
+
+	private static class BenchmarkConnection extends AConnection
+	{
+		private BenchmarkConnection(SocketChannel sc, Dispatcher d) throws IOException
+		{
+			super(sc, d);
+		}
+
+		@Override
+		protected boolean processData(ByteBuffer data)
+		{
+			return true;
+		}
+
+		@Override
+		protected boolean writeData(ByteBuffer data)
+		{
+			return false;
+		}
+
+		@Override
+		protected long getDisconnectionDelay()
+		{
+			return 0;
+		}
+
+		@Override
+		protected void onDisconnect()
+		{
+		}
+
+		@Override
+		protected void onServerClose()
+		{
+		}
+	}
+
+	private static class BenchmarkPacket extends BaseClientPacket<BenchmarkConnection>
+	{
+		private final boolean			blocking;
+		private final CountDownLatch	done;
+
+		private BenchmarkPacket(boolean blocking, CountDownLatch done)
+		{
+			super(0);
+			this.blocking = blocking;
+			this.done = done;
+		}
+
+		@Override
+		protected void readImpl()
+		{
+		}
+
+		@Override
+		protected void runImpl()
+		{
+			if(blocking)
+			{
+				try
+				{
+					Thread.sleep(BLOCK_TIME);
+				}
+				catch(InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+			}
+			else
+			{
+				long end = System.nanoTime() + WORK_TIME;
+				while(System.nanoTime() < end)
+					;
+			}
+		}
+
+		@Override
+		public void run()
+		{
+			runImpl();
+			done.countDown();
+		}
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.commons.utils.concurrent;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of scheduling and cancelling timers, as done for most of ai and effect timers, in {@link TimingWheel} and in
+ * ScheduledThreadPoolExecutor.
+ * 
+ * @author ATracer
+ */
+public class TimingWheelBenchmark
+{
+	public static void main(String[] args)
+	{
+		Runnable task = new Runnable(){
+			@Override
+			public void run()
+			{
+			}
+		};
+		int timers = 1000000;
+
+		TimingWheel wheel = new TimingWheel(10, new Executor(){
+			@Override
+			public void execute(Runnable command)
+			{
+				command.run();
+			}
+		}, Long.MAX_VALUE);
+		ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(1);
+
+		for(int round = 0; round < 2; round++)
+		{
+			long start = System.nanoTime();
+			for(int i = 0; i < timers; i++)
+				wheel.schedule(task, 1000 + i % 60000).cancel(false);
+			long wheelTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for(int i = 0; i < timers; i++)
+				pool.schedule(task, 1000 + i % 60000, TimeUnit.MILLISECONDS).cancel(false);
+			long poolTime = System.nanoTime() - start;
+			int tombstones = pool.getQueue().size();
+			pool.purge();
+
+			if(round == 1)
+				System.out.println(String.format("Schedule and cancel: TimingWheel %d per ms, "
+					+ "ScheduledThreadPoolExecutor %d per ms (%d cancelled tasks left in queue)", timers * 1000000L
+					/ wheelTime, timers * 1000000L / poolTime, tombstones));
+		}
+		wheel.shutdown();
+		pool.shutdown();
+	}
+}
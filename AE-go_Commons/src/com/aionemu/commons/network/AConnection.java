@@ -21,6 +21,9 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.aionemu.commons.options.Assertion;
 
@@ -33,6 +36,10 @@ import com.aionemu.commons.options.Assertion;
  */
 public abstract class AConnection
 {
+	/**
+	 * Capacity of io read and write buffers.
+	 */
+	public static final int		BUFFER_SIZE	= 8192 * 2;
 	/**
 	 * SocketChannel representing this connection
 	 */
@@ -62,13 +69,17 @@ public abstract class AConnection
 	 */
 	protected final Object		guard	= new Object();
 	/**
-	 * ByteBuffer for io write.
+	 * Pool from witch io buffers are borrowed, null if this connection owns its buffers.
+	 */
+	private final ByteBufferPool	bufferPool;
+	/**
+	 * ByteBuffer for io write, null if pooled and there is nothing to write.
 	 */
-	public final ByteBuffer		writeBuffer;
+	private ByteBuffer			writeBuffer;
 	/**
-	 * ByteBuffer for io read.
+	 * ByteBuffer for io read, null if pooled and there is no partially read data.
 	 */
-	public final ByteBuffer		readBuffer;
+	private ByteBuffer			readBuffer;
 
 	/**
 	 * Caching ip address to make sure that {@link #getIP()} method works even after disconnection
@@ -76,9 +87,26 @@ public abstract class AConnection
 	private final String		ip;
 
 	/**
-	 * Used only for PacketProcessor synchronization purpose
+	 * Client packets waiting for execution by PacketProcessor.
+	 */
+	private final Queue<Runnable>	mailbox		= new ConcurrentLinkedQueue<Runnable>();
+	/**
+	 * True if this connection is in PacketProcessor run queue or served by one of its threads.
+	 */
+	private final AtomicBoolean		scheduled	= new AtomicBoolean();
+	/**
+	 * Time [System.nanoTime()] when this connection was put to PacketProcessor run queue.
+	 */
+	private volatile long			scheduleTime;
+
+	/**
+	 * Number of packets written to write buffer. Updated only by Dispatcher Thread.
+	 */
+	private long				writtenPackets;
+	/**
+	 * Number of socket write calls. Updated only by Dispatcher Thread.
 	 */
-	private boolean				locked	= false;
+	private long				socketWrites;
 
 	/**
 	 * Constructor
@@ -91,11 +119,15 @@ public abstract class AConnection
 	{
 		socketChannel = sc;
 		dispatcher = d;
-		writeBuffer = ByteBuffer.allocate(8192 * 2);
-		writeBuffer.flip();
-		writeBuffer.order(ByteOrder.LITTLE_ENDIAN);
-		readBuffer = ByteBuffer.allocate(8192 * 2);
-		readBuffer.order(ByteOrder.LITTLE_ENDIAN);
+		bufferPool = d.getBufferPool();
+		if(bufferPool == null)
+		{
+			writeBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+			writeBuffer.flip();
+			writeBuffer.order(ByteOrder.LITTLE_ENDIAN);
+			readBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+			readBuffer.order(ByteOrder.LITTLE_ENDIAN);
+		}
 
 		dispatcher.register(socketChannel, SelectionKey.OP_READ, this);
 
@@ -132,6 +164,68 @@ public abstract class AConnection
 		return dispatcher;
 	}
 
+	/**
+	 * Returns ByteBuffer for io read, borrowing one from pool if needed. May be called only by Dispatcher Thread.
+	 * 
+	 * @return ByteBuffer for io read.
+	 */
+	final ByteBuffer getReadBuffer()
+	{
+		if(readBuffer == null)
+		{
+			readBuffer = bufferPool.borrow();
+			readBuffer.order(ByteOrder.LITTLE_ENDIAN);
+		}
+		return readBuffer;
+	}
+
+	/**
+	 * Called when read buffer doesn't hold any data. Pooled buffer is returned to pool, own buffer is cleared. May be
+	 * called only by Dispatcher Thread.
+	 */
+	final void releaseReadBuffer()
+	{
+		if(bufferPool == null)
+		{
+			readBuffer.clear();
+		}
+		else if(readBuffer != null)
+		{
+			bufferPool.release(readBuffer);
+			readBuffer = null;
+		}
+	}
+
+	/**
+	 * Returns ByteBuffer for io write, borrowing one from pool if needed. Borrowed buffer has no remaining data. May
+	 * be called only by Dispatcher Thread.
+	 * 
+	 * @return ByteBuffer for io write.
+	 */
+	final ByteBuffer getWriteBuffer()
+	{
+		if(writeBuffer == null)
+		{
+			writeBuffer = bufferPool.borrow();
+			writeBuffer.flip();
+			writeBuffer.order(ByteOrder.LITTLE_ENDIAN);
+		}
+		return writeBuffer;
+	}
+
+	/**
+	 * Called when all data from write buffer was sent. Pooled buffer is returned to pool. May be called only by
+	 * Dispatcher Thread.
+	 */
+	final void releaseWriteBuffer()
+	{
+		if(bufferPool != null && writeBuffer != null)
+		{
+			bufferPool.release(writeBuffer);
+			writeBuffer = null;
+		}
+	}
+
 	/**
 	 * @return SocketChannel representing this connection.
 	 */
@@ -187,6 +281,11 @@ public abstract class AConnection
 					key.cancel();
 				}
 				closed = true;
+				if(bufferPool != null)
+				{
+					releaseReadBuffer();
+					releaseWriteBuffer();
+				}
 			}
 			catch(IOException ignored)
 			{
@@ -220,24 +319,111 @@ public abstract class AConnection
 	}
 
 	/**
-	 * Used only for PacketProcessor synchronization purpose. Return true if locked successful - if wasn't locked
-	 * before.
+	 * Used only by PacketProcessor. Add packet to mailbox of this connection.
 	 * 
-	 * @return locked
+	 * @param packet
+	 */
+	final void offerPacket(Runnable packet)
+	{
+		mailbox.offer(packet);
+	}
+
+	/**
+	 * Used only by PacketProcessor.
+	 * 
+	 * @return next packet waiting for execution or null.
+	 */
+	final Runnable pollPacket()
+	{
+		return mailbox.poll();
+	}
+
+	/**
+	 * Used only by PacketProcessor.
+	 * 
+	 * @return true if there are packets waiting for execution.
+	 */
+	final boolean hasPackets()
+	{
+		return !mailbox.isEmpty();
+	}
+
+	/**
+	 * Used only for PacketProcessor synchronization purpose. Return true if connection was marked as scheduled - if
+	 * wasn't scheduled before.
+	 * 
+	 * @return scheduled
+	 */
+	final boolean trySchedule()
+	{
+		return scheduled.compareAndSet(false, true);
+	}
+
+	/**
+	 * Used only for PacketProcessor synchronization purpose. Mark this connection as not scheduled.
+	 */
+	final void unschedule()
+	{
+		scheduled.set(false);
+	}
+
+	/**
+	 * @return time when this connection was put to PacketProcessor run queue.
+	 */
+	final long getScheduleTime()
+	{
+		return scheduleTime;
+	}
+
+	/**
+	 * @param scheduleTime
+	 */
+	final void setScheduleTime(long scheduleTime)
+	{
+		this.scheduleTime = scheduleTime;
+	}
+
+	/**
+	 * Should be called by writeData implementation with number of packets written to buffer.
+	 * 
+	 * @param count
+	 */
+	protected final void countWrittenPackets(int count)
+	{
+		writtenPackets += count;
+	}
+
+	/**
+	 * Called by Dispatcher after each socket write.
+	 */
+	final void countSocketWrite()
+	{
+		socketWrites++;
+	}
+
+	/**
+	 * @return Number of packets written so far [approximate if called by other than Dispatcher Thread].
+	 */
+	public final long getWrittenPackets()
+	{
+		return writtenPackets;
+	}
+
+	/**
+	 * @return Number of socket write calls so far [approximate if called by other than Dispatcher Thread].
 	 */
-	boolean tryLockConnection()
+	public final long getSocketWrites()
 	{
-		if(locked)
-			return false;
-		return locked = true;
+		return socketWrites;
 	}
 
 	/**
-	 * Used only for PacketProcessor synchronization purpose. Unlock this connection.
+	 * @return Average number of packets sent by one socket write call.
 	 */
-	void unlockConnection()
+	public final float getPacketsPerWrite()
 	{
-		locked = false;
+		long writes = socketWrites;
+		return writes == 0 ? 0 : (float) writtenPackets / writes;
 	}
 
 	/**
@@ -247,7 +433,8 @@ public abstract class AConnection
 	abstract protected boolean processData(ByteBuffer data);
 
 	/**
-	 * This method will be called by Dispatcher, and will be repeated till return false.
+	 * This method will be called by Dispatcher, and will be repeated till return false. Implementation may write as
+	 * many packets as fit to the buffer, so they will be sent by one socket write.
 	 * 
 	 * @param data
 	 * @return True if data was written to buffer, False indicating that there are not any more data to write.
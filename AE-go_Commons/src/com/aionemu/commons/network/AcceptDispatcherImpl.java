@@ -48,7 +48,10 @@ public class AcceptDispatcherImpl extends Dispatcher
 	@Override
 	void dispatch() throws IOException
 	{
-		if(selector.select() != 0)
+		int selected = selector.select();
+		long start = System.nanoTime();
+
+		if(selected != 0)
 		{
 			Iterator<SelectionKey> selectedKeys = this.selector.selectedKeys().iterator();
 			while(selectedKeys.hasNext())
@@ -60,6 +63,8 @@ public class AcceptDispatcherImpl extends Dispatcher
 					accept(key);
 			}
 		}
+
+		loopDone(selected, start);
 	}
 
 	/**
@@ -49,6 +49,23 @@ public class AcceptReadWriteDispatcherImpl extends Dispatcher
 		super(name, dcPool);
 	}
 
+	/**
+	 * Constructor that accept <code>String</code> name, <code>DisconnectionThreadPool</code> dcPool and
+	 * <code>ByteBufferPool</code> bufferPool as parameter.
+	 * 
+	 * @param name
+	 * @param dcPool
+	 * @param bufferPool
+	 * @throws IOException
+	 * @see com.aionemu.commons.network.DisconnectionThreadPool
+	 * @see com.aionemu.commons.network.ByteBufferPool
+	 */
+	public AcceptReadWriteDispatcherImpl(String name, DisconnectionThreadPool dcPool, ByteBufferPool bufferPool)
+		throws IOException
+	{
+		super(name, dcPool, bufferPool);
+	}
+
 	/**
 	 * Process Pending Close connections and then dispatch <code>Selector</code> selected-key set.
 	 * 
@@ -58,6 +75,7 @@ public class AcceptReadWriteDispatcherImpl extends Dispatcher
 	void dispatch() throws IOException
 	{
 		int selected = selector.select();
+		long start = System.nanoTime();
 
 		processPendingClose();
 
@@ -92,6 +110,8 @@ public class AcceptReadWriteDispatcherImpl extends Dispatcher
 				}
 			}
 		}
+
+		loopDone(selected, start);
 	}
 
 	/**
@@ -0,0 +1,145 @@
+/*
+ * This file is part of aion-emu <aion-emu.com>.
+ *
+ *  aion-emu is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-emu is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-emu.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.commons.network;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of direct <code>ByteBuffer</code>s of one size. Connections borrow buffers only when they have something to read
+ * or write and return them when they are empty again, so idle connections don't hold any io buffer. Direct buffers are
+ * used so socket io doesn't have to copy data through temporary direct buffers of the JDK.
+ * 
+ * @author ATracer
+ */
+public class ByteBufferPool
+{
+	/**
+	 * Capacity of pooled buffers.
+	 */
+	private final int				bufferSize;
+	/**
+	 * Idle buffers.
+	 */
+	private final Queue<ByteBuffer>	idle			= new ConcurrentLinkedQueue<ByteBuffer>();
+	/**
+	 * Number of idle buffers.
+	 */
+	private final AtomicInteger		idleCount		= new AtomicInteger();
+	/**
+	 * Number of borrowed buffers.
+	 */
+	private final AtomicInteger		borrowedCount	= new AtomicInteger();
+	/**
+	 * Number of buffers allocated since pool creation.
+	 */
+	private final AtomicInteger		allocatedCount	= new AtomicInteger();
+	/**
+	 * Max number of idle buffers kept, buffers released above that are left for gc.
+	 */
+	private final int				maxIdle;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxIdle
+	 *            - max number of idle buffers kept.
+	 * @param bufferSize
+	 *            - capacity of pooled buffers.
+	 */
+	public ByteBufferPool(int maxIdle, int bufferSize)
+	{
+		this.maxIdle = maxIdle;
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * Borrow cleared buffer from this pool.
+	 *
+	 * @return buffer with capacity of pooled buffers.
+	 */
+	public ByteBuffer borrow()
+	{
+		ByteBuffer buf = idle.poll();
+		if(buf == null)
+		{
+			buf = ByteBuffer.allocateDirect(bufferSize);
+			allocatedCount.incrementAndGet();
+		}
+		else
+			idleCount.decrementAndGet();
+
+		borrowedCount.incrementAndGet();
+		buf.clear();
+		return buf;
+	}
+
+	/**
+	 * Return buffer borrowed from this pool.
+	 *
+	 * @param buf
+	 */
+	public void release(ByteBuffer buf)
+	{
+		if(buf.capacity() != bufferSize)
+			throw new IllegalArgumentException("Buffer wasn't borrowed from this pool");
+
+		borrowedCount.decrementAndGet();
+		if(idleCount.incrementAndGet() <= maxIdle)
+			idle.offer(buf);
+		else
+			idleCount.decrementAndGet();
+	}
+
+	/**
+	 * @return Number of buffers currently borrowed from this pool.
+	 */
+	public int getBorrowed()
+	{
+		return borrowedCount.get();
+	}
+
+	/**
+	 * @return Number of idle buffers currently held by this pool.
+	 */
+	public int getIdle()
+	{
+		return idleCount.get();
+	}
+
+	/**
+	 * @return Bytes of direct memory held by borrowed and idle buffers.
+	 */
+	public long getReservedBytes()
+	{
+		return (long) bufferSize * (borrowedCount.get() + idleCount.get());
+	}
+
+	/**
+	 * Returns pool occupancy in form: size: borrowed/idle/allocated.
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		return "ByteBufferPool [" + bufferSize + ": " + borrowedCount.get() + "/" + idleCount.get() + "/"
+			+ allocatedCount.get() + "] reserved bytes: " + getReservedBytes();
+	}
+}
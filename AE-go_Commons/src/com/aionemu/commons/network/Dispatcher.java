@@ -24,6 +24,7 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
 import java.nio.channels.spi.SelectorProvider;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 
@@ -40,7 +41,12 @@ public abstract class Dispatcher extends Thread
 	/**
 	 * Logger for Dispatcher
 	 */
-	private static final Logger				log		= Logger.getLogger(Dispatcher.class);
+	private static final Logger				log				= Logger.getLogger(Dispatcher.class);
+
+	/**
+	 * Length of time window in which recent busy time is measured [ns].
+	 */
+	private static final long				RECENT_WINDOW	= 1000000000L;
 
 	/**
 	 * Selector thats selecting ready keys.
@@ -51,10 +57,38 @@ public abstract class Dispatcher extends Thread
 	 * ThreadPool on witch disconnection tasks will be executed.
 	 */
 	private final DisconnectionThreadPool	dcPool;
+	/**
+	 * Pool of io buffers for connections registered to this Dispatcher, null if connections allocate own buffers.
+	 */
+	private final ByteBufferPool			bufferPool;
 	/**
 	 * Object on witch register vs selector.select are synchronized
 	 */
-	private final Object					gate	= new Object();
+	private final Object					gate			= new Object();
+
+	/**
+	 * Number of connections registered to this Dispatcher.
+	 */
+	private final AtomicInteger				connections		= new AtomicInteger();
+
+	/**
+	 * Statistics below are written only by this Dispatcher thread.
+	 */
+	private volatile long					loops;
+	private volatile long					selectedKeys;
+	private volatile long					bytesRead;
+	private volatile long					bytesWritten;
+	/**
+	 * Time spent by dispatching selected keys, without time spent waiting in select [ns].
+	 */
+	private volatile long					busyTime;
+	private volatile long					maxLoopTime;
+	/**
+	 * Busy time of last full time window and start of current one [ns].
+	 */
+	private volatile long					recentBusyTime;
+	private volatile long					windowStart		= System.nanoTime();
+	private long							windowBusyTime;
 
 	/**
 	 * Constructor.
@@ -64,10 +98,24 @@ public abstract class Dispatcher extends Thread
 	 * @throws IOException
 	 */
 	public Dispatcher(String name, DisconnectionThreadPool dcPool) throws IOException
+	{
+		this(name, dcPool, null);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param name
+	 * @param dcPool
+	 * @param bufferPool
+	 * @throws IOException
+	 */
+	public Dispatcher(String name, DisconnectionThreadPool dcPool, ByteBufferPool bufferPool) throws IOException
 	{
 		super(name);
 		this.selector = SelectorProvider.provider().openSelector();
 		this.dcPool = dcPool;
+		this.bufferPool = bufferPool;
 	}
 
 	/**
@@ -87,6 +135,14 @@ public abstract class Dispatcher extends Thread
 	 */
 	abstract void dispatch() throws IOException;
 
+	/**
+	 * @return Pool of io buffers or null if connections of this Dispatcher allocate own buffers.
+	 */
+	final ByteBufferPool getBufferPool()
+	{
+		return bufferPool;
+	}
+
 	/**
 	 * @return Selector of this Dispatcher
 	 */
@@ -136,6 +192,7 @@ public abstract class Dispatcher extends Thread
 			selector.wakeup();
 			att.setKey(ch.register(selector, ops, att));
 		}
+		connections.incrementAndGet();
 	}
 
 	/**
@@ -184,14 +241,14 @@ public abstract class Dispatcher extends Thread
 		SocketChannel socketChannel = (SocketChannel) key.channel();
 		AConnection con = (AConnection) key.attachment();
 
-		ByteBuffer rb = con.readBuffer;
+		ByteBuffer rb = con.getReadBuffer();
 
 		/**
 		 * Test if this build should use assertion. If NetworkAssertion == false javac will remove this code block
 		 */
 		if(Assertion.NetworkAssertion)
 		{
-			assert con.readBuffer.hasRemaining();
+			assert rb.hasRemaining();
 		}
 
 		/** Attempt to read off the channel */
@@ -206,6 +263,9 @@ public abstract class Dispatcher extends Thread
 			return;
 		}
 
+		if(numRead > 0)
+			bytesRead += numRead;
+
 		if(numRead == -1)
 		{
 			/**
@@ -216,6 +276,8 @@ public abstract class Dispatcher extends Thread
 		}
 		else if(numRead == 0)
 		{
+			if(rb.position() == 0)
+				con.releaseReadBuffer();
 			return;
 		}
 
@@ -231,18 +293,18 @@ public abstract class Dispatcher extends Thread
 		}
 		if(rb.hasRemaining())
 		{
-			con.readBuffer.compact();
+			rb.compact();
 
 			/**
 			 * Test if this build should use assertion. If NetworkAssertion == false javac will remove this code block
 			 */
 			if(Assertion.NetworkAssertion)
 			{
-				assert con.readBuffer.hasRemaining();
+				assert rb.hasRemaining();
 			}
 		}
 		else
-			rb.clear();
+			con.releaseReadBuffer();
 	}
 
 	/**
@@ -289,13 +351,15 @@ public abstract class Dispatcher extends Thread
 		AConnection con = (AConnection) key.attachment();
 
 		int numWrite;
-		ByteBuffer wb = con.writeBuffer;
+		ByteBuffer wb = con.getWriteBuffer();
 		/** We have not writted data */
 		if(wb.hasRemaining())
 		{
 			try
 			{
 				numWrite = socketChannel.write(wb);
+				con.countSocketWrite();
+				bytesWritten += numWrite;
 			}
 			catch(IOException e)
 			{
@@ -329,6 +393,8 @@ public abstract class Dispatcher extends Thread
 			try
 			{
 				numWrite = socketChannel.write(wb);
+				con.countSocketWrite();
+				bytesWritten += numWrite;
 			}
 			catch(IOException e)
 			{
@@ -359,6 +425,7 @@ public abstract class Dispatcher extends Thread
 		 * We wrote away all data, so we're no longer interested in writing on this socket.
 		 */
 		key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+		con.releaseWriteBuffer();
 
 		/** We wrote all data so we can close connection that is "PandingClose" */
 		if(con.isPendingClose())
@@ -381,6 +448,116 @@ public abstract class Dispatcher extends Thread
 			assert Thread.currentThread() == this;
 
 		if(con.onlyClose())
+		{
+			connections.decrementAndGet();
 			dcPool.scheduleDisconnection(new DisconnectionTask(con), con.getDisconnectionDelay());
+		}
+	}
+
+	/**
+	 * Update statistics after one dispatch loop. May be called only by this Dispatcher thread.
+	 * 
+	 * @param selected
+	 *            number of keys selected in this loop.
+	 * @param start
+	 *            time when select returned [ns].
+	 */
+	final void loopDone(int selected, long start)
+	{
+		long now = System.nanoTime();
+		long time = now - start;
+
+		loops++;
+		selectedKeys += selected;
+		busyTime += time;
+		if(time > maxLoopTime)
+			maxLoopTime = time;
+
+		windowBusyTime += time;
+		if(now - windowStart >= RECENT_WINDOW)
+		{
+			recentBusyTime = windowBusyTime;
+			windowBusyTime = 0;
+			windowStart = now;
+		}
+	}
+
+	/**
+	 * @return Number of connections registered to this Dispatcher.
+	 */
+	public final int getConnectionCount()
+	{
+		return connections.get();
+	}
+
+	/**
+	 * @return Number of dispatch loops done.
+	 */
+	public final long getLoops()
+	{
+		return loops;
+	}
+
+	/**
+	 * @return Average number of keys selected in one dispatch loop.
+	 */
+	public final float getSelectedKeysPerLoop()
+	{
+		long l = loops;
+		return l == 0 ? 0 : (float) selectedKeys / l;
+	}
+
+	/**
+	 * @return Number of bytes read from all connections.
+	 */
+	public final long getBytesRead()
+	{
+		return bytesRead;
+	}
+
+	/**
+	 * @return Number of bytes written to all connections.
+	 */
+	public final long getBytesWritten()
+	{
+		return bytesWritten;
+	}
+
+	/**
+	 * @return Average time of dispatching selected keys in one loop [us].
+	 */
+	public final long getAverageLoopTime()
+	{
+		long l = loops;
+		return l == 0 ? 0 : busyTime / l / 1000;
+	}
+
+	/**
+	 * @return Max time of dispatching selected keys in one loop [us].
+	 */
+	public final long getMaxLoopTime()
+	{
+		return maxLoopTime / 1000;
+	}
+
+	/**
+	 * @return Time spent by dispatching during last second [us], 0 if this Dispatcher was idle since then.
+	 */
+	public final long getRecentBusyTime()
+	{
+		if(System.nanoTime() - windowStart >= 2 * RECENT_WINDOW)
+			return 0;
+		return recentBusyTime / 1000;
+	}
+
+	/**
+	 * @see java.lang.Thread#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		return getName() + ": connections " + getConnectionCount() + ", keys/loop " + getSelectedKeysPerLoop()
+			+ ", read " + getBytesRead() + " B, written " + getBytesWritten() + " B, loop avg/max "
+			+ getAverageLoopTime() + "/" + getMaxLoopTime() + " us, busy " + getRecentBusyTime() + " us/s";
 	}
 }
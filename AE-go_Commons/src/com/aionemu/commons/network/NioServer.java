@@ -39,6 +39,11 @@ public class NioServer
 	 */
 	private static final Logger				log					= Logger.getLogger(NioServer.class.getName());
 
+	/**
+	 * Max number of idle io buffers kept in pool.
+	 */
+	private static final int				MAX_IDLE_BUFFERS	= 256;
+
 	/**
 	 * The channels on which we'll accept connections
 	 */
@@ -48,10 +53,6 @@ public class NioServer
 	 * Dispatcher that will accept connections
 	 */
 	private Dispatcher						acceptDispatcher;
-	/**
-	 * Useful int to load balance connections between Dispatchers
-	 */
-	private int								currentReadWriteDispatcher;
 	/**
 	 * Read Write Dispatchers
 	 */
@@ -62,6 +63,11 @@ public class NioServer
 	 */
 	private final DisconnectionThreadPool	dcPool;
 
+	/**
+	 * Pool of io buffers shared by all connections or null if pooling is disabled.
+	 */
+	private ByteBufferPool					bufferPool;
+
 	/**
 	 * 
 	 */
@@ -98,6 +104,15 @@ public class NioServer
 		this.dcPool = dcPool;
 		this.readWriteThreads = readWriteThreads;
 		this.cfgs = cfgs;
+
+		for(ServerCfg cfg : cfgs)
+		{
+			if(cfg.useBufferPool)
+			{
+				bufferPool = new ByteBufferPool(MAX_IDLE_BUFFERS, AConnection.BUFFER_SIZE);
+				break;
+			}
+		}
 	}
 
 	public void connect()
@@ -153,6 +168,9 @@ public class NioServer
 	}
 
 	/**
+	 * Returns ReadWrite Dispatcher with the fewest connections, when more have the same number of connections the one
+	 * that was least busy recently is chosen.
+	 * 
 	 * @return one of ReadWrite Dispatcher or Accept Dispatcher if readWriteThreads was set to 0.
 	 */
 	public final Dispatcher getReadWriteDispatcher()
@@ -163,9 +181,40 @@ public class NioServer
 		if(readWriteDispatchers.length == 1)
 			return readWriteDispatchers[0];
 
-		if(currentReadWriteDispatcher >= readWriteDispatchers.length)
-			currentReadWriteDispatcher = 0;
-		return readWriteDispatchers[currentReadWriteDispatcher++];
+		Dispatcher best = readWriteDispatchers[0];
+		int bestConnections = best.getConnectionCount();
+		long bestBusyTime = best.getRecentBusyTime();
+		for(int i = 1; i < readWriteDispatchers.length; i++)
+		{
+			Dispatcher d = readWriteDispatchers[i];
+			int connections = d.getConnectionCount();
+			if(connections > bestConnections)
+				continue;
+
+			long busyTime = d.getRecentBusyTime();
+			if(connections < bestConnections || busyTime < bestBusyTime)
+			{
+				best = d;
+				bestConnections = connections;
+				bestBusyTime = busyTime;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @return Accept Dispatcher followed by ReadWrite Dispatchers, if there are any.
+	 */
+	public final List<Dispatcher> getDispatchers()
+	{
+		List<Dispatcher> dispatchers = new ArrayList<Dispatcher>();
+		dispatchers.add(acceptDispatcher);
+		if(readWriteDispatchers != null)
+		{
+			for(Dispatcher d : readWriteDispatchers)
+				dispatchers.add(d);
+		}
+		return dispatchers;
 	}
 
 	/**
@@ -179,7 +228,7 @@ public class NioServer
 	{
 		if(readWriteThreads <= 0)
 		{
-			acceptDispatcher = new AcceptReadWriteDispatcherImpl("AcceptReadWrite Dispatcher", dcPool);
+			acceptDispatcher = new AcceptReadWriteDispatcherImpl("AcceptReadWrite Dispatcher", dcPool, bufferPool);
 			acceptDispatcher.start();
 		}
 		else
@@ -190,7 +239,8 @@ public class NioServer
 			readWriteDispatchers = new Dispatcher[readWriteThreads];
 			for(int i = 0; i < readWriteDispatchers.length; i++)
 			{
-				readWriteDispatchers[i] = new AcceptReadWriteDispatcherImpl("ReadWrite-" + i + " Dispatcher", dcPool);
+				readWriteDispatchers[i] = new AcceptReadWriteDispatcherImpl("ReadWrite-" + i + " Dispatcher", dcPool,
+					bufferPool);
 				readWriteDispatchers[i].start();
 			}
 		}
@@ -214,6 +264,14 @@ public class NioServer
 		return count;
 	}
 
+	/**
+	 * @return Pool of io buffers or null if connections allocate own buffers.
+	 */
+	public final ByteBufferPool getBufferPool()
+	{
+		return bufferPool;
+	}
+
 	/**
 	 * Shutdown.
 	 */
@@ -249,6 +307,11 @@ public class NioServer
 		closeAll();
 		log.info(" Active connections: " + getActiveConnections());
 
+		if(bufferPool != null)
+			log.info(" " + bufferPool);
+		for(Dispatcher d : getDispatchers())
+			log.info(" " + d);
+
 		dcPool.waitForDisconnectionTasks();
 
 		/** Wait 5s */
@@ -17,12 +17,13 @@
 package com.aionemu.commons.network;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.ListIterator;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
 
@@ -30,7 +31,11 @@ import com.aionemu.commons.network.packet.BaseClientPacket;
 
 /**
  * Packet Processor responsible for executing packets in correct order with respecting rules: - 1 packet / client at one
- * time. - execute packets in received order.
+ * time. - execute packets in received order.<br>
+ * Every connection has its own lock-free mailbox of packets. Connection that has packets waiting and is not served by
+ * any working thread is put to shared run queue, so picking next packet is O(1) regardless of number of waiting
+ * packets. Working thread executes one packet and puts connection back to the end of run queue if it has more packets,
+ * so busy clients can't starve others.
  * 
  * @author -Nemesiss-
  * @param <T>
@@ -42,45 +47,70 @@ public class PacketProcessor<T extends AConnection>
 	/**
 	 * Logger for PacketProcessor
 	 */
-	private static final Logger				log					= Logger.getLogger(PacketProcessor.class.getName());
+	private static final Logger					log					= Logger.getLogger(PacketProcessor.class.getName());
 	/**
-	 * When one working thread should be killed.
+	 * How long idle working thread above minThreads waits for work before it is killed [in seconds].
 	 */
-	private final static int				reduceThreshold		= 3;
+	private final static int					keepAliveTime		= 60;
 	/**
-	 * When one working thread should be created.
+	 * Waiting time in run queue [in ms] after witch lagg is reported.
 	 */
-	private final static int				increaseThreshold	= 50;
+	private final static int					laggThreshold		= 1000;
 
 	/**
-	 * Lock for synchronization.
+	 * Connections that have packets waiting for execution and are not served by any working thread.
 	 */
-	private final Lock						lock				= new ReentrantLock();
+	private final BlockingQueue<AConnection>	runQueue			= new LinkedBlockingQueue<AConnection>();
 
 	/**
-	 * Not Empty condition.
+	 * Working threads.
 	 */
-	private final Condition					notEmpty			= lock.newCondition();
+	private final List<Thread>					threads				= new ArrayList<Thread>();
 
 	/**
-	 * Queue of packet that will be executed in correct order.
+	 * Number of working threads created so far, used to give every thread unique name.
 	 */
-	private final List<BaseClientPacket<T>>	packets				= new LinkedList<BaseClientPacket<T>>();
+	private final AtomicInteger					createdThreads		= new AtomicInteger();
 
 	/**
-	 * Working threads.
+	 * Number of working threads waiting for connection to serve.
+	 */
+	private final AtomicInteger					idleThreads			= new AtomicInteger();
+
+	/**
+	 * Number of packets waiting for execution.
+	 */
+	private final AtomicInteger					queuedPackets		= new AtomicInteger();
+
+	/**
+	 * Number of executed packets.
+	 */
+	private final AtomicLong					executedPackets		= new AtomicLong();
+
+	/**
+	 * Sum of times connections were waiting in run queue [in ns].
+	 */
+	private final AtomicLong					totalWaitTime		= new AtomicLong();
+
+	/**
+	 * Max time connection was waiting in run queue [in ns].
+	 */
+	private final AtomicLong					maxWaitTime			= new AtomicLong();
+
+	/**
+	 * Last time lagg was reported.
 	 */
-	private final List<Thread>				threads				= new ArrayList<Thread>();
+	private volatile long						lastLaggReport;
 
 	/**
 	 * minimum number of working Threads
 	 */
-	private final int						minThreads;
+	private final int							minThreads;
 
 	/**
 	 * maximum number of working Threads
 	 */
-	private final int						maxThreads;
+	private final int							maxThreads;
 
 	/**
 	 * Create and start PacketProcessor responsible for executing packets.
@@ -100,22 +130,10 @@ public class PacketProcessor<T extends AConnection>
 		this.minThreads = minThreads;
 		this.maxThreads = maxThreads;
 
-		if(minThreads != maxThreads)
-			startCheckerThread();
-
 		for(int i = 0; i < minThreads; i++)
 			newThread();
 	}
 
-	/**
-	 * Start Checker Thread. Checker is responsible for increasing / reducing PacketProcessor Thread count based on
-	 * Runtime needs.
-	 */
-	private void startCheckerThread()
-	{
-		new Thread(new CheckerTask(), "PacketProcessor:Checker").start();
-	}
-
 	/**
 	 * Create and start new PacketProcessor Thread, but only if there wont be more working Threads than "maxThreads"
 	 * 
@@ -123,29 +141,37 @@ public class PacketProcessor<T extends AConnection>
 	 */
 	private boolean newThread()
 	{
-		if(threads.size() >= maxThreads)
-			return false;
+		synchronized(threads)
+		{
+			if(threads.size() >= maxThreads)
+				return false;
 
-		String name = "PacketProcessor:" + threads.size();
-		log.debug("Creating new PacketProcessor Thread: " + name);
+			String name = "PacketProcessor:" + createdThreads.getAndIncrement();
+			log.debug("Creating new PacketProcessor Thread: " + name);
 
-		Thread t = new Thread(new PacketProcessorTask(), name);
-		threads.add(t);
-		t.start();
+			Thread t = new Thread(new PacketProcessorTask(), name);
+			threads.add(t);
+			t.start();
 
-		return true;
+			return true;
+		}
 	}
 
 	/**
-	 * Kill one PacketProcessor Thread, but only if there are more working Threads than "minThreads"
+	 * Remove current PacketProcessor Thread, but only if there are more working Threads than "minThreads"
+	 * 
+	 * @return true if current Thread should end.
 	 */
-	private void killThread()
+	private boolean killThread()
 	{
-		if(threads.size() < minThreads)
+		synchronized(threads)
 		{
-			Thread t = threads.remove((threads.size() - 1));
-			log.debug("Killing PacketProcessor Thread: " + t.getName());
-			t.interrupt();
+			if(threads.size() <= minThreads)
+				return false;
+
+			log.debug("Killing PacketProcessor Thread: " + Thread.currentThread().getName());
+			threads.remove(Thread.currentThread());
+			return true;
 		}
 	}
 
@@ -157,42 +183,203 @@ public class PacketProcessor<T extends AConnection>
 	 */
 	public final void executePacket(BaseClientPacket<T> packet)
 	{
-		lock.lock();
+		T con = packet.getConnection();
+
+		queuedPackets.incrementAndGet();
+		con.offerPacket(packet);
+
+		if(con.trySchedule())
+			schedule(con);
+	}
+
+	/**
+	 * Put connection to run queue and start new working Thread if all are busy.
+	 * 
+	 * @param con
+	 */
+	private void schedule(AConnection con)
+	{
+		con.setScheduleTime(System.nanoTime());
+		runQueue.offer(con);
+
+		if(idleThreads.get() == 0)
+			newThread();
+	}
+
+	/**
+	 * Execute next packet of given connection and reschedule connection if it has more packets waiting.
+	 * 
+	 * @param con
+	 */
+	@SuppressWarnings("unchecked")
+	private void serve(AConnection con)
+	{
+		long waitTime = System.nanoTime() - con.getScheduleTime();
+		updateWaitTime(waitTime);
+
+		BaseClientPacket<T> packet = (BaseClientPacket<T>) con.pollPacket();
+		if(packet != null)
+		{
+			queuedPackets.decrementAndGet();
+
+			Executor executor = packet.getExecutor();
+			if(executor != null)
+			{
+				/** connection stays scheduled until packet is executed, so its next packet waits for it */
+				executor.execute(new RoutedPacketTask(con, packet));
+				return;
+			}
+			runPacket(packet);
+		}
+		finishServing(con);
+	}
+
+	/**
+	 * Execute packet catching and logging Throwable.
+	 * 
+	 * @param packet
+	 */
+	private void runPacket(BaseClientPacket<T> packet)
+	{
 		try
 		{
-			packets.add(packet);
-			notEmpty.signal();
+			packet.run();
 		}
-		finally
+		catch(Throwable t)
 		{
-			lock.unlock();
+			log.error("Error while executing packet: " + packet, t);
 		}
+		executedPackets.incrementAndGet();
 	}
 
 	/**
-	 * Return first packet available for execution with respecting rules: - 1 packet / client at one time. - execute
-	 * packets in received order.
+	 * Reschedule connection if it has more packets waiting.
 	 * 
-	 * @return first available BaseClientPacket
+	 * @param con
 	 */
-	private BaseClientPacket<T> getFirstAviable()
+	private void finishServing(AConnection con)
 	{
-		for(;;)
+		if(con.hasPackets())
+			schedule(con);
+		else
 		{
-			while(packets.isEmpty())
-				notEmpty.awaitUninterruptibly();
+			con.unschedule();
+			/** packet could be added just before unschedule */
+			if(con.hasPackets() && con.trySchedule())
+				schedule(con);
+		}
+	}
+
+	/**
+	 * Update wait time statistics and report lagg if connections are waiting too long.
+	 * 
+	 * @param waitTime
+	 *            in ns.
+	 */
+	private void updateWaitTime(long waitTime)
+	{
+		totalWaitTime.addAndGet(waitTime);
+
+		long max = maxWaitTime.get();
+		while(waitTime > max && !maxWaitTime.compareAndSet(max, waitTime))
+			max = maxWaitTime.get();
 
-			ListIterator<BaseClientPacket<T>> it = packets.listIterator();
-			while(it.hasNext())
+		if(waitTime > TimeUnit.MILLISECONDS.toNanos(laggThreshold))
+		{
+			long now = System.currentTimeMillis();
+			if(now - lastLaggReport > 60 * 1000)
 			{
-				BaseClientPacket<T> packet = it.next();
-				if(packet.getConnection().tryLockConnection())
-				{
-					it.remove();
-					return packet;
-				}
+				lastLaggReport = now;
+				log.info("Lagg detected! [" + queuedPackets.get() + " client packets are waiting for execution, "
+					+ TimeUnit.NANOSECONDS.toMillis(waitTime) + " ms in queue]. You should consider increasing"
+					+ " PacketProcessor maxThreads or hardware upgrade.");
 			}
-			notEmpty.awaitUninterruptibly();
+		}
+	}
+
+	/**
+	 * @return Number of packets waiting for execution.
+	 */
+	public final int getQueuedPackets()
+	{
+		return queuedPackets.get();
+	}
+
+	/**
+	 * @return Number of connections waiting for working thread.
+	 */
+	public final int getRunnableConnections()
+	{
+		return runQueue.size();
+	}
+
+	/**
+	 * @return Number of executed packets.
+	 */
+	public final long getExecutedPackets()
+	{
+		return executedPackets.get();
+	}
+
+	/**
+	 * @return Average time connection was waiting in run queue [in ms].
+	 */
+	public final float getAverageWaitTime()
+	{
+		long executed = executedPackets.get();
+		return executed == 0 ? 0 : (float) totalWaitTime.get() / executed / 1000000;
+	}
+
+	/**
+	 * @return Max time connection was waiting in run queue [in ms].
+	 */
+	public final float getMaxWaitTime()
+	{
+		return (float) maxWaitTime.get() / 1000000;
+	}
+
+	/**
+	 * @return Number of working threads.
+	 */
+	public final int getThreadCount()
+	{
+		synchronized(threads)
+		{
+			return threads.size();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString()
+	{
+		return "PacketProcessor [threads: " + getThreadCount() + ", queued packets: " + getQueuedPackets()
+			+ ", runnable connections: " + getRunnableConnections() + ", executed: " + getExecutedPackets()
+			+ ", avg wait: " + getAverageWaitTime() + " ms, max wait: " + getMaxWaitTime() + " ms]";
+	}
+
+	/**
+	 * Executes packet on executor returned by {@link BaseClientPacket#getExecutor()} and then lets its connection
+	 * continue with next packet.
+	 */
+	private final class RoutedPacketTask implements Runnable
+	{
+		private final AConnection			con;
+		private final BaseClientPacket<T>	packet;
+
+		private RoutedPacketTask(AConnection con, BaseClientPacket<T> packet)
+		{
+			this.con = con;
+			this.packet = packet;
+		}
+
+		@Override
+		public void run()
+		{
+			runPacket(packet);
+			finishServing(con);
 		}
 	}
 
@@ -211,84 +398,32 @@ public class PacketProcessor<T extends AConnection>
 		@Override
 		public void run()
 		{
-			BaseClientPacket<T> packet = null;
 			for(;;)
 			{
-				lock.lock();
+				AConnection con;
+				idleThreads.incrementAndGet();
 				try
 				{
-					if(packet != null)
-						packet.getConnection().unlockConnection();
-
+					con = runQueue.poll(keepAliveTime, TimeUnit.SECONDS);
+				}
+				catch(InterruptedException e)
+				{
 					/* thread killed */
-					if(Thread.interrupted())
-						return;
-
-					packet = getFirstAviable();
+					return;
 				}
 				finally
 				{
-					lock.unlock();
+					idleThreads.decrementAndGet();
 				}
-				packet.run();
-			}
-		}
-	}
-
-	/**
-	 * Checking if PacketProcessor is busy or idle and increasing / reducing numbers of threads.
-	 * 
-	 * @author -Nemesiss-
-	 * 
-	 */
-	private final class CheckerTask implements Runnable
-	{
-		/**
-		 * How often CheckerTask should do check.
-		 */
-		private final int	sleepTime	= 60 * 1000;
-		/**
-		 * Number of packets waiting for execution on last check.
-		 */
-		private int			lastSize	= 0;
 
-		/**
-		 * {@inheritDoc}
-		 */
-		@Override
-		public void run()
-		{
-			/* Sleep for some time */
-			try
-			{
-				Thread.sleep(sleepTime);
-			}
-			catch(InterruptedException e)
-			{
-				// we dont care
-			}
-
-			/* Number of packets waiting for execution */
-			int sizeNow = packets.size();
-
-			if(sizeNow < lastSize)
-			{
-				if(sizeNow < reduceThreshold)
+				if(con == null)
 				{
-					// too much threads
-					killThread();
+					if(killThread())
+						return;
+					continue;
 				}
+				serve(con);
 			}
-			else if(sizeNow > lastSize && sizeNow > increaseThreshold)
-			{
-				// too low threads
-				if(!newThread() && sizeNow >= increaseThreshold * 3)
-					log
-						.info("Lagg detected! ["
-							+ sizeNow
-							+ " client packets are waiting for execution]. You should consider increasing PacketProcessor maxThreads or hardware upgrade.");
-			}
-			lastSize = sizeNow;
 		}
 	}
 }
@@ -45,6 +45,14 @@ public class ServerCfg
 	 * @see com.aionemu.commons.network.AConnection
 	 */
 	public final ConnectionFactory	factory;
+	/**
+	 * True if connections should borrow their io buffers from pool of direct buffers instead of allocating own heap
+	 * buffers. Dispatchers are shared by all configurations of one <code>NioServer</code>, so the pool is used by all
+	 * its connections if any of its configurations enables it.
+	 *
+	 * @see com.aionemu.commons.network.ByteBufferPool
+	 */
+	public final boolean			useBufferPool;
 
 	/**
 	 * Constructor
@@ -59,10 +67,31 @@ public class ServerCfg
 	 *            <code>ConnectionFactory</code> that will create <code>AConection</code> object
 	 */
 	public ServerCfg(String hostName, int port, String connectionName, ConnectionFactory factory)
+	{
+		this(hostName, port, connectionName, factory, false);
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param hostName
+	 *            - Host Name on witch we will listen for connections.
+	 * @param port
+	 *            - Port number on witch we will listen for connections.
+	 * @param connectionName
+	 *            - only for logging purposes.
+	 * @param factory
+	 *            <code>ConnectionFactory</code> that will create <code>AConection</code> object
+	 * @param useBufferPool
+	 *            - true if connections should use pooled direct buffers.
+	 */
+	public ServerCfg(String hostName, int port, String connectionName, ConnectionFactory factory,
+		boolean useBufferPool)
 	{
 		this.hostName = hostName;
 		this.port = port;
 		this.connectionName = connectionName;
 		this.factory = factory;
+		this.useBufferPool = useBufferPool;
 	}
 }
@@ -17,6 +17,7 @@
 package com.aionemu.commons.network.packet;
 
 import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
 
 import org.apache.log4j.Logger;
 
@@ -280,6 +281,17 @@ public abstract class BaseClientPacket<T extends AConnection> extends BasePacket
 	 */
 	protected abstract void runImpl();
 
+	/**
+	 * Packets that must run in context of some other executor [for example executor of map where their owner is] return
+	 * that executor. Next packet of the same connection is not executed until this one finishes.
+	 * 
+	 * @return Executor that should run this packet or null if it runs on packet processor thread.
+	 */
+	public Executor getExecutor()
+	{
+		return null;
+	}
+
 	/**
 	 * @return Connection that is owner of this packet.
 	 */
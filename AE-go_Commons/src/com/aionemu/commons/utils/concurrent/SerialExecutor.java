@@ -0,0 +1,145 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.commons.utils.concurrent;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Executor that runs tasks one at a time in order they were submitted, using threads of another executor. Objects that
+ * are touched only by tasks of one serial executor don't need any locking.<br>
+ * After running {@link #BATCH_SIZE} tasks the executor resubmits itself, so busy serial executors share threads of
+ * backing executor fairly.
+ * 
+ * @author ATracer
+ */
+public class SerialExecutor implements Executor
+{
+	private static final Logger		log			= Logger.getLogger(SerialExecutor.class);
+
+	/**
+	 * Max number of tasks run at once by one thread of backing executor.
+	 */
+	private static final int		BATCH_SIZE	= 64;
+
+	/**
+	 * Serial executor whose tasks are run by current thread.
+	 */
+	private static final ThreadLocal<SerialExecutor>	current		= new ThreadLocal<SerialExecutor>();
+
+	private final Executor			executor;
+	private final Queue<Runnable>	tasks		= new ConcurrentLinkedQueue<Runnable>();
+	private final AtomicInteger		queuedTasks	= new AtomicInteger();
+	private final AtomicBoolean		scheduled	= new AtomicBoolean();
+	/**
+	 * Only written by drain and only one drain runs at a time [guarded by scheduled flag], so plain increment doesn't
+	 * lose counts. Volatile only to make it readable by other threads.
+	 */
+	private volatile long			executedTasks;
+
+	private final Runnable			drain		= new Runnable(){
+		@Override
+		public void run()
+		{
+			drain();
+		}
+	};
+
+	/**
+	 * @param executor
+	 *            - executor whose threads run tasks of this serial executor.
+	 */
+	public SerialExecutor(Executor executor)
+	{
+		this.executor = executor;
+	}
+
+	@Override
+	public void execute(Runnable task)
+	{
+		queuedTasks.incrementAndGet();
+		tasks.offer(task);
+		if(scheduled.compareAndSet(false, true))
+			executor.execute(drain);
+	}
+
+	/**
+	 * Run next batch of tasks and reschedule if more tasks are waiting.
+	 */
+	private void drain()
+	{
+		current.set(this);
+		try
+		{
+			for(int i = 0; i < BATCH_SIZE; i++)
+			{
+				Runnable task = tasks.poll();
+				if(task == null)
+					break;
+
+				queuedTasks.decrementAndGet();
+				try
+				{
+					task.run();
+				}
+				catch(Throwable t)
+				{
+					log.error("Exception in task: " + task, t);
+				}
+				executedTasks++;
+			}
+		}
+		finally
+		{
+			current.remove();
+			scheduled.set(false);
+		}
+
+		/** task could be added just before scheduled flag was cleared */
+		if(!tasks.isEmpty() && scheduled.compareAndSet(false, true))
+			executor.execute(drain);
+	}
+
+	/**
+	 * @return true if current thread is running tasks of this executor.
+	 */
+	public boolean isCurrentThread()
+	{
+		return current.get() == this;
+	}
+
+	/**
+	 * @return Number of tasks waiting for execution.
+	 */
+	public int getQueuedTasks()
+	{
+		return queuedTasks.get();
+	}
+
+	/**
+	 * @return Number of executed tasks.
+	 */
+	public long getExecutedTasks()
+	{
+		return executedTasks;
+	}
+}
@@ -0,0 +1,469 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.commons.utils.concurrent;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Hashed hierarchical timing wheel for one-shot tasks. Time is split into ticks, the first wheel has a slot for each
+ * of next 256 ticks and every higher wheel has 64 slots, each covering a whole turn of the wheel below it. Task is
+ * linked into slot of its deadline, so scheduling and cancelling is O(1) and cancelled task is unlinked right away.
+ * When lower wheel completes a turn, tasks of next slot of higher wheel are redistributed to lower wheels.<br>
+ * Due tasks are run by given executor, the wheel thread only moves tasks between slots.
+ * 
+ * @author ATracer
+ */
+public final class TimingWheel
+{
+	private static final Logger	log				= Logger.getLogger(TimingWheel.class);
+
+	private static final int	ROOT_BITS		= 8;
+	private static final int	LEVEL_BITS		= 6;
+	private static final int	LEVELS			= 4;
+	private static final int	ROOT_MASK		= (1 << ROOT_BITS) - 1;
+	private static final int	LEVEL_MASK		= (1 << LEVEL_BITS) - 1;
+
+	/**
+	 * Ticks covered by all wheels
+	 */
+	private static final long	MAX_TICKS		= 1L << (ROOT_BITS + (LEVELS - 1) * LEVEL_BITS);
+
+	private final long			tickNanos;
+	private final Executor		executor;
+	private final long			maximumRuntimeInMillisecWithoutWarning;
+
+	/**
+	 * Sentinels of task lists of each slot of each wheel
+	 */
+	private final Timeout[][]	wheels			= new Timeout[LEVELS][];
+
+	private final long			startTime		= System.nanoTime();
+
+	/**
+	 * Next tick to process, guarded by this
+	 */
+	private long				tick;
+
+	/**
+	 * Number of tasks waiting in wheels, guarded by this
+	 */
+	private int					pending;
+
+	private final AtomicLong	scheduledCount	= new AtomicLong();
+	private final AtomicLong	cancelledCount	= new AtomicLong();
+	private final AtomicLong	expiredCount	= new AtomicLong();
+
+	private final Thread		thread;
+	private volatile boolean	shutdown;
+
+	/**
+	 * @param tickMillis
+	 *            - resolution of the wheel [ms].
+	 * @param executor
+	 *            - runs due tasks.
+	 * @param maximumRuntimeInMillisecWithoutWarning
+	 *            - tasks running longer are logged.
+	 */
+	public TimingWheel(long tickMillis, Executor executor, long maximumRuntimeInMillisecWithoutWarning)
+	{
+		this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+		this.executor = executor;
+		this.maximumRuntimeInMillisecWithoutWarning = maximumRuntimeInMillisecWithoutWarning;
+
+		for(int level = 0; level < LEVELS; level++)
+		{
+			Timeout[] wheel = new Timeout[level == 0 ? 1 << ROOT_BITS : 1 << LEVEL_BITS];
+			for(int i = 0; i < wheel.length; i++)
+				wheel[i] = new Timeout(this, null, 0);
+			wheels[level] = wheel;
+		}
+
+		thread = new Thread(new Runnable(){
+			@Override
+			public void run()
+			{
+				runWheel();
+			}
+		}, "TimingWheel");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * @return longest delay this wheel handles [ms], longer delays are still accepted but are less precise.
+	 */
+	public long getMaxDelay()
+	{
+		return TimeUnit.NANOSECONDS.toMillis(tickNanos * (MAX_TICKS - 1));
+	}
+
+	/**
+	 * Run task after given delay. Task runs at tick boundary, at most one tick later than requested.
+	 * 
+	 * @param task
+	 * @param delay
+	 *            [ms]
+	 * @return future that cancels the task.
+	 */
+	public ScheduledFuture<?> schedule(Runnable task, long delay)
+	{
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delay));
+		Timeout timeout = new Timeout(this, task, deadline);
+		/** round up, so task never runs early */
+		long deadlineTick = (deadline - startTime + tickNanos - 1) / tickNanos;
+
+		synchronized(this)
+		{
+			timeout.deadlineTick = Math.max(deadlineTick, tick);
+			add(timeout);
+			pending++;
+		}
+		scheduledCount.incrementAndGet();
+		return timeout;
+	}
+
+	/**
+	 * Link task into slot of its deadline, relative to next tick.
+	 */
+	private void add(Timeout timeout)
+	{
+		long deadlineTick = timeout.deadlineTick;
+		long ticks = deadlineTick - tick;
+
+		Timeout head;
+		if(ticks < 1 << ROOT_BITS)
+			head = wheels[0][(int) (deadlineTick & ROOT_MASK)];
+		else
+		{
+			if(ticks >= MAX_TICKS)
+			{
+				/** redistributed again when slot is reached */
+				deadlineTick = tick + MAX_TICKS - 1;
+				ticks = MAX_TICKS - 1;
+			}
+			int level = 1;
+			while(ticks >= 1L << (ROOT_BITS + level * LEVEL_BITS))
+				level++;
+			int shift = ROOT_BITS + (level - 1) * LEVEL_BITS;
+			head = wheels[level][(int) ((deadlineTick >> shift) & LEVEL_MASK)];
+		}
+
+		timeout.prev = head.prev;
+		timeout.next = head;
+		head.prev.next = timeout;
+		head.prev = timeout;
+	}
+
+	private static void unlink(Timeout timeout)
+	{
+		timeout.prev.next = timeout.next;
+		timeout.next.prev = timeout.prev;
+		timeout.prev = null;
+		timeout.next = null;
+	}
+
+	/**
+	 * Detach all tasks of slot.
+	 * 
+	 * @return first task of detached list or null, tasks are linked by next.
+	 */
+	private static Timeout detach(Timeout head)
+	{
+		if(head.next == head)
+			return null;
+
+		Timeout first = head.next;
+		head.prev.next = null;
+		head.next = head;
+		head.prev = head;
+		return first;
+	}
+
+	/**
+	 * Process all ticks up to now.
+	 * 
+	 * @return due tasks linked by next in order of their deadlines, or null.
+	 */
+	private synchronized Timeout advance(long now)
+	{
+		Timeout due = null;
+		Timeout last = null;
+		long lastTick = (now - startTime) / tickNanos;
+		for(; tick <= lastTick; tick++)
+		{
+			int index = (int) (tick & ROOT_MASK);
+			/** lower wheel completed a turn, redistribute next slot of higher wheel */
+			for(int level = 1; index == 0 && level < LEVELS; level++)
+			{
+				int shift = ROOT_BITS + (level - 1) * LEVEL_BITS;
+				index = (int) ((tick >> shift) & LEVEL_MASK);
+				for(Timeout timeout = detach(wheels[level][index]); timeout != null;)
+				{
+					Timeout next = timeout.next;
+					add(timeout);
+					timeout = next;
+				}
+			}
+
+			for(Timeout timeout = detach(wheels[0][(int) (tick & ROOT_MASK)]); timeout != null;)
+			{
+				Timeout next = timeout.next;
+				timeout.prev = null;
+				timeout.next = null;
+				if(last == null)
+					due = timeout;
+				else
+					last.next = timeout;
+				last = timeout;
+				pending--;
+				timeout = next;
+			}
+		}
+		return due;
+	}
+
+	private void runWheel()
+	{
+		while(!shutdown)
+		{
+			long now = System.nanoTime();
+			for(Timeout timeout = advance(now); timeout != null;)
+			{
+				Timeout next = timeout.next;
+				timeout.next = null;
+				if(Timeout.STATE.compareAndSet(timeout, Timeout.PENDING, Timeout.DUE))
+				{
+					expiredCount.incrementAndGet();
+					try
+					{
+						executor.execute(timeout);
+					}
+					catch(RuntimeException e)
+					{
+						log.warn("Can't execute " + timeout.task, e);
+					}
+				}
+				timeout = next;
+			}
+
+			long sleep = tickNanos - (System.nanoTime() - startTime) % tickNanos;
+			try
+			{
+				TimeUnit.NANOSECONDS.sleep(sleep);
+			}
+			catch(InterruptedException e)
+			{
+				// shutdown
+			}
+		}
+	}
+
+	/**
+	 * Stop the wheel thread, tasks that weren't due yet are dropped.
+	 */
+	public void shutdown()
+	{
+		shutdown = true;
+		thread.interrupt();
+	}
+
+	/**
+	 * @return number of tasks waiting for their deadline.
+	 */
+	public synchronized int getPendingCount()
+	{
+		return pending;
+	}
+
+	public long getScheduledCount()
+	{
+		return scheduledCount.get();
+	}
+
+	public long getCancelledCount()
+	{
+		return cancelledCount.get();
+	}
+
+	public long getExpiredCount()
+	{
+		return expiredCount.get();
+	}
+
+	@Override
+	public String toString()
+	{
+		return "TimingWheel [pending: " + getPendingCount() + ", scheduled: " + getScheduledCount() + ", cancelled: "
+			+ getCancelledCount() + ", expired: " + getExpiredCount() + "]";
+	}
+
+	/**
+	 * Task in the wheel, also the slot list sentinel when task is null.
+	 */
+	private static final class Timeout implements ScheduledFuture<Object>, Runnable
+	{
+		private static final int	PENDING		= 0;
+		private static final int	DUE			= 1;
+		private static final int	RUNNING		= 2;
+		private static final int	DONE		= 3;
+		private static final int	CANCELLED	= 4;
+
+		private static final AtomicIntegerFieldUpdater<Timeout>	STATE	= AtomicIntegerFieldUpdater.newUpdater(
+			Timeout.class, "state");
+
+		private final TimingWheel	wheel;
+		private final Runnable		task;
+		private final long			deadline;
+
+		/**
+		 * Tick of deadline and links of slot list, guarded by wheel
+		 */
+		private long				deadlineTick;
+		private Timeout				prev;
+		private Timeout				next;
+
+		private volatile int		state;
+
+		private Timeout(TimingWheel wheel, Runnable task, long deadline)
+		{
+			this.wheel = wheel;
+			this.task = task;
+			this.deadline = deadline;
+			if(task == null)
+			{
+				prev = this;
+				next = this;
+			}
+		}
+
+		@Override
+		public void run()
+		{
+			if(!STATE.compareAndSet(this, DUE, RUNNING))
+				return;
+
+			try
+			{
+				ExecuteWrapper.execute(task, wheel.maximumRuntimeInMillisecWithoutWarning);
+			}
+			finally
+			{
+				synchronized(this)
+				{
+					state = DONE;
+					notifyAll();
+				}
+			}
+		}
+
+		/**
+		 * Task that wasn't started yet is removed from the wheel, it is never interrupted.
+		 */
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning)
+		{
+			if(STATE.compareAndSet(this, PENDING, CANCELLED))
+			{
+				synchronized(wheel)
+				{
+					if(prev != null)
+					{
+						unlink(this);
+						wheel.pending--;
+					}
+				}
+			}
+			else if(!STATE.compareAndSet(this, DUE, CANCELLED))
+				return false;
+
+			wheel.cancelledCount.incrementAndGet();
+			synchronized(this)
+			{
+				notifyAll();
+			}
+			return true;
+		}
+
+		@Override
+		public boolean isCancelled()
+		{
+			return state == CANCELLED;
+		}
+
+		@Override
+		public boolean isDone()
+		{
+			return state >= DONE;
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit)
+		{
+			return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed o)
+		{
+			long diff = getDelay(TimeUnit.NANOSECONDS) - o.getDelay(TimeUnit.NANOSECONDS);
+			return diff < 0 ? -1 : diff > 0 ? 1 : 0;
+		}
+
+		@Override
+		public synchronized Object get() throws InterruptedException, ExecutionException
+		{
+			while(state < DONE)
+				wait();
+			if(state == CANCELLED)
+				throw new CancellationException();
+			return null;
+		}
+
+		@Override
+		public synchronized Object get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException,
+			TimeoutException
+		{
+			long end = System.nanoTime() + unit.toNanos(timeout);
+			while(state < DONE)
+			{
+				long left = end - System.nanoTime();
+				if(left <= 0)
+					throw new TimeoutException();
+				TimeUnit.NANOSECONDS.timedWait(this, left);
+			}
+			if(state == CANCELLED)
+				throw new CancellationException();
+			return null;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "Timeout [" + task + "]";
+		}
+	}
+}
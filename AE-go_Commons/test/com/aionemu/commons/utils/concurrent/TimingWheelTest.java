@@ -0,0 +1,165 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.commons.utils.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Checks that {@link TimingWheel} runs tasks after their delay and skips cancelled ones. Tests only wait as long as
+ * needed and don't check how late tasks run, so they don't fail on loaded host.
+ * 
+ * @author ATracer
+ */
+public class TimingWheelTest
+{
+	/**
+	 * Runs due tasks on the wheel thread.
+	 */
+	private static final Executor	DIRECT	= new Executor(){
+		@Override
+		public void execute(Runnable command)
+		{
+			command.run();
+		}
+	};
+
+	/**
+	 * Max time to wait for tasks that should already run [in ms].
+	 */
+	private static final long		TIMEOUT	= 10000;
+
+	@Test
+	public void testTasksRunAfterDelay() throws Exception
+	{
+		TimingWheel wheel = new TimingWheel(1, DIRECT, Long.MAX_VALUE);
+		Random rnd = new Random(3);
+		CountDownLatch done = new CountDownLatch(300);
+		List<TimedTask> tasks = new ArrayList<TimedTask>();
+		/** delays over 256 ticks go through higher wheel */
+		for(int i = 0; i < 300; i++)
+		{
+			TimedTask task = new TimedTask(rnd.nextInt(1200), done);
+			tasks.add(task);
+			wheel.schedule(task, task.delay);
+			task.scheduledTime = System.nanoTime();
+		}
+
+		Assert.assertTrue("tasks didn't run", done.await(1200 + TIMEOUT, TimeUnit.MILLISECONDS));
+		for(TimedTask task : tasks)
+		{
+			long delay = TimeUnit.NANOSECONDS.toMillis(task.runTime - task.scheduleTime);
+			Assert.assertTrue("task with delay " + task.delay + " ran after " + delay, delay >= task.delay);
+		}
+
+		/** task that is due at least 2 ticks later than other one never runs before it */
+		long ticks = TimeUnit.MILLISECONDS.toNanos(2);
+		for(TimedTask task : tasks)
+		{
+			for(TimedTask other : tasks)
+			{
+				if(other.latestDeadline() + ticks <= task.earliestDeadline())
+					Assert.assertTrue("task with delay " + task.delay + " ran before task with delay " + other.delay,
+						task.runTime >= other.runTime);
+			}
+		}
+		Assert.assertEquals(0, wheel.getPendingCount());
+		Assert.assertEquals(300, wheel.getExpiredCount());
+		wheel.shutdown();
+	}
+
+	@Test
+	public void testCancel() throws Exception
+	{
+		TimingWheel wheel = new TimingWheel(1, DIRECT, Long.MAX_VALUE);
+		final AtomicInteger runs = new AtomicInteger();
+		Runnable task = new Runnable(){
+			@Override
+			public void run()
+			{
+				runs.incrementAndGet();
+			}
+		};
+
+		List<ScheduledFuture<?>> futures = new ArrayList<ScheduledFuture<?>>();
+		for(int i = 0; i < 1000; i++)
+			futures.add(wheel.schedule(task, 50 + i % 500));
+		for(int i = 0; i < 1000; i += 2)
+			Assert.assertTrue(futures.get(i).cancel(false));
+		Assert.assertEquals(500, wheel.getPendingCount());
+
+		long deadline = System.currentTimeMillis() + 550 + TIMEOUT;
+		while(runs.get() < 500 && System.currentTimeMillis() < deadline)
+			Thread.sleep(10);
+		Assert.assertEquals(500, runs.get());
+		Assert.assertEquals(0, wheel.getPendingCount());
+		Assert.assertEquals(500, wheel.getCancelledCount());
+		for(int i = 0; i < 1000; i++)
+		{
+			Assert.assertTrue(futures.get(i).isDone());
+			Assert.assertEquals(i % 2 == 0, futures.get(i).isCancelled());
+			/** already done */
+			Assert.assertFalse(futures.get(i).cancel(false));
+		}
+		wheel.shutdown();
+	}
+
+	private static class TimedTask implements Runnable
+	{
+		private final long				delay;
+		private final long				scheduleTime	= System.nanoTime();
+		private final CountDownLatch	done;
+		private long					scheduledTime;
+		private volatile long			runTime;
+
+		private TimedTask(long delay, CountDownLatch done)
+		{
+			this.delay = delay;
+			this.done = done;
+		}
+
+		@Override
+		public void run()
+		{
+			runTime = System.nanoTime();
+			done.countDown();
+		}
+
+		/**
+		 * Task is scheduled between scheduleTime and scheduledTime, so it is due between these deadlines [in ns].
+		 */
+		private long earliestDeadline()
+		{
+			return scheduleTime + TimeUnit.MILLISECONDS.toNanos(delay);
+		}
+
+		private long latestDeadline()
+		{
+			return scheduledTime + TimeUnit.MILLISECONDS.toNanos(delay);
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * This file is part of aion-emu <aion-emu.com>.
+ *
+ *  aion-emu is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-emu is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-emu.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.ai.desires;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.aionemu.gameserver.ai.AI;
+import com.aionemu.gameserver.ai.desires.impl.CounterBasedDesireFilter;
+import com.aionemu.gameserver.ai.desires.impl.GeneralDesireIteratorHandler;
+
+/**
+ * Cost of handling desires of one npc per ai tick, {@link DesireQueue} against iteration over priority queue as it was
+ * done before.
+ * 
+ * @author ATracer
+ */
+public class DesireQueueBenchmark
+{
+	private static final int	NPCS	= 10000;
+	private static final int	TICKS	= 200;
+
+	public static void main(String[] args)
+	{
+		List<DesireQueue> queues = new ArrayList<DesireQueue>();
+		List<PriorityQueue<Desire>> oldQueues = new ArrayList<PriorityQueue<Desire>>();
+		for(int i = 0; i < NPCS; i++)
+		{
+			DesireQueue queue = new DesireQueue();
+			PriorityQueue<Desire> oldQueue = new PriorityQueue<Desire>();
+			for(int d = 0; d < 3; d++)
+			{
+				queue.addDesire(new BenchmarkDesire(d, 10 * d));
+				oldQueue.add(new BenchmarkDesire(d, 10 * d));
+			}
+			queues.add(queue);
+			oldQueues.add(oldQueue);
+		}
+
+		long time = 0, oldTime = 0;
+		for(int round = 0; round < 2; round++)
+		{
+			long start = System.nanoTime();
+			for(int t = 0; t < TICKS; t++)
+			{
+				for(DesireQueue queue : queues)
+					queue.handleDesires(null);
+			}
+			time = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for(int t = 0; t < TICKS; t++)
+			{
+				for(PriorityQueue<Desire> oldQueue : oldQueues)
+					oldIterateDesires(oldQueue, new GeneralDesireIteratorHandler(null), new CounterBasedDesireFilter());
+			}
+			oldTime = System.nanoTime() - start;
+		}
+
+		System.out.println(String.format("Desire handling for %d npcs: %d ns per ai tick, %d ns with priority queue",
+			NPCS, time / TICKS / NPCS, oldTime / TICKS / NPCS));
+	}
+
+	/**
+	 * Iteration as it was done over priority queue.
+	 */
+	private static void oldIterateDesires(PriorityQueue<Desire> queue, DesireIteratorHandler handler,
+		DesireIteratorFilter... filters)
+	{
+		synchronized(queue)
+		{
+			Iterator<Desire> iterator = queue.iterator();
+			outer: while(iterator.hasNext())
+			{
+				Desire desire = iterator.next();
+				for(DesireIteratorFilter filter : filters)
+				{
+					if(!filter.isOk(desire))
+						continue outer;
+				}
+				handler.next(desire, iterator);
+			}
+		}
+	}
+
+	private static class BenchmarkDesire extends AbstractDesire
+	{
+		private final int	key;
+
+		private BenchmarkDesire(int key, int desirePower)
+		{
+			super(desirePower);
+			this.key = key;
+		}
+
+		@Override
+		public boolean handleDesire(AI<?> ai)
+		{
+			return true;
+		}
+
+		@Override
+		public int getExecutionInterval()
+		{
+			return 1;
+		}
+
+		@Override
+		public void onClear()
+		{
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			return o instanceof BenchmarkDesire && ((BenchmarkDesire) o).key == key;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return key;
+		}
+	}
+}
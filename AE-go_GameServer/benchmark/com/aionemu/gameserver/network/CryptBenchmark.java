@@ -0,0 +1,64 @@
+/*
+ * This file is part of aion-emu <aion-emu.com>.
+ *
+ *  aion-emu is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-emu is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-emu.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.network;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import com.aionemu.gameserver.network.CryptTest.ReferenceCrypt;
+
+/**
+ * Encryption speed of {@link Crypt} against the original byte by byte implementation.
+ * 
+ * @author ATracer
+ */
+public class CryptBenchmark
+{
+	private static final int	ROUNDS	= 200000;
+
+	public static void main(String[] args)
+	{
+		byte[] data = new byte[512];
+		new Random(3).nextBytes(data);
+		ByteBuffer buf = ByteBuffer.wrap(data);
+
+		Crypt crypt = new Crypt();
+		ReferenceCrypt ref = new ReferenceCrypt(crypt.enableKey());
+		CryptTest.skipFirstPacket(crypt);
+
+		// warm up
+		for(int i = 0; i < ROUNDS; i++)
+		{
+			ref.encrypt(data);
+			crypt.encrypt(buf);
+		}
+
+		long start = System.nanoTime();
+		for(int i = 0; i < ROUNDS; i++)
+			ref.encrypt(data);
+		long refTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for(int i = 0; i < ROUNDS; i++)
+			crypt.encrypt(buf);
+		long time = System.nanoTime() - start;
+
+		long bytes = (long) ROUNDS * data.length;
+		System.out.println(String.format("Crypt.encrypt: %d MB/s, byte by byte: %d MB/s", bytes * 1000 / time,
+			bytes * 1000 / refTime));
+	}
+}
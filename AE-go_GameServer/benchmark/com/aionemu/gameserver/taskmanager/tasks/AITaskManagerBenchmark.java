@@ -0,0 +1,55 @@
+/*
+ * This file is part of aion-emu <aion-emu.com>.
+ *
+ *  aion-emu is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-emu is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-emu.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.taskmanager.tasks;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Average cost of {@link AITaskManager} tick with many registered ai tasks.
+ * 
+ * @author ATracer
+ */
+public class AITaskManagerBenchmark
+{
+	private static final int	TASKS	= 50000;
+
+	public static void main(String[] args)
+	{
+		AITaskManager manager = new AITaskManager(new Executor(){
+			@Override
+			public void execute(Runnable command)
+			{
+				command.run();
+			}
+		}, 2);
+		for(int i = 0; i < TASKS; i++)
+		{
+			manager.add(new Runnable(){
+				@Override
+				public void run()
+				{
+				}
+			});
+		}
+
+		for(int i = 0; i < AITaskManager.SLOTS * 20; i++)
+			manager.tick();
+
+		System.out.println(String.format("AITaskManager: %d tasks, avg tick cost %d us", manager.getTaskCount(),
+			manager.getAverageTickCost() / 1000));
+	}
+}
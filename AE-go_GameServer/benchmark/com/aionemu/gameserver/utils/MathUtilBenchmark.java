@@ -0,0 +1,74 @@
+/*
+ * This file is part of aion-emu <aion-emu.com>.
+ *
+ *  aion-emu is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-emu is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-emu.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.utils;
+
+import java.util.Random;
+
+/**
+ * Compares speed of distance based and squared distance range checks of {@link MathUtil} in visibility loop.
+ * 
+ * @author ATracer
+ */
+public class MathUtilBenchmark
+{
+	private static final int	OBJECTS	= 2000;
+	private static final float	RANGE	= 95;
+
+	public static void main(String[] args)
+	{
+		Random rnd = new Random(13);
+		float[] x = new float[OBJECTS], y = new float[OBJECTS], z = new float[OBJECTS];
+		for(int i = 0; i < OBJECTS; i++)
+		{
+			x[i] = rnd.nextFloat() * 500;
+			y[i] = rnd.nextFloat() * 500;
+			z[i] = rnd.nextFloat() * 50;
+		}
+
+		long distanceTime = 0;
+		long squaredTime = 0;
+		for(int round = 0; round < 5; round++)
+		{
+			long start = System.nanoTime();
+			int distanceVisible = 0;
+			for(int i = 0; i < OBJECTS; i++)
+				for(int j = 0; j < OBJECTS; j++)
+				{
+					if(MathUtil.getDistance(x[i], y[i], z[i], x[j], y[j], z[j]) < RANGE)
+						distanceVisible++;
+				}
+			distanceTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			int squaredVisible = 0;
+			for(int i = 0; i < OBJECTS; i++)
+				for(int j = 0; j < OBJECTS; j++)
+				{
+					if(MathUtil.isIn3dRange(x[i], y[i], z[i], x[j], y[j], z[j], RANGE))
+						squaredVisible++;
+				}
+			squaredTime = System.nanoTime() - start;
+
+			if(distanceVisible != squaredVisible)
+				throw new IllegalStateException("Range checks differ");
+		}
+
+		long checks = (long) OBJECTS * OBJECTS;
+		System.out.println(String.format("Visibility checks: getDistance %d ns, isIn3dRange %d ns per 1000 checks",
+			distanceTime * 1000 / checks, squaredTime * 1000 / checks));
+	}
+}
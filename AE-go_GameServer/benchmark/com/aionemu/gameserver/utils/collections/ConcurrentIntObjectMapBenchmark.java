@@ -0,0 +1,134 @@
+/*
+ * This file is part of aion-emu <aion-emu.com>.
+ *
+ *  aion-emu is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-emu is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-emu.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.utils.collections;
+
+import java.util.Map;
+
+import javolution.util.FastMap;
+
+/**
+ * Compares throughput and memory footprint of {@link ConcurrentIntObjectMap} with shared FastMap it replaced in world
+ * registries.
+ * 
+ * @author ATracer
+ */
+public class ConcurrentIntObjectMapBenchmark
+{
+	private static final int	ENTRIES	= 100000;
+
+	public static void main(String[] args)
+	{
+		Integer[] values = new Integer[ENTRIES];
+		for(int i = 0; i < ENTRIES; i++)
+			values[i] = i;
+
+		for(int round = 0; round < 3; round++)
+		{
+			long start = System.nanoTime();
+			ConcurrentIntObjectMap<Integer> map = new ConcurrentIntObjectMap<Integer>();
+			for(int i = 0; i < ENTRIES; i++)
+				map.put(i, values[i]);
+			long sum = 0;
+			for(int r = 0; r < 10; r++)
+				for(int i = 0; i < ENTRIES; i++)
+					sum += map.get(i);
+			for(Integer value : map.values())
+				sum += value;
+			long time = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			Map<Integer, Integer> fastMap = new FastMap<Integer, Integer>().shared();
+			for(int i = 0; i < ENTRIES; i++)
+				fastMap.put(i, values[i]);
+			for(int r = 0; r < 10; r++)
+				for(int i = 0; i < ENTRIES; i++)
+					sum -= fastMap.get(i);
+			for(Integer value : fastMap.values())
+				sum -= value;
+			long fastMapTime = System.nanoTime() - start;
+
+			if(sum != 0)
+				throw new IllegalStateException("Maps differ");
+			if(round == 2)
+				System.out.println(String.format("ConcurrentIntObjectMap: %d ms, shared FastMap: %d ms", time / 1000000,
+					fastMapTime / 1000000));
+		}
+
+		long footprint = footprint(new Runnable(){
+			ConcurrentIntObjectMap<Integer>	map;
+
+			@Override
+			public void run()
+			{
+				map = new ConcurrentIntObjectMap<Integer>();
+				for(int i = 0; i < ENTRIES; i++)
+					map.put(i, i);
+			}
+		});
+		long fastMapFootprint = footprint(new Runnable(){
+			Map<Integer, Integer>	map;
+
+			@Override
+			public void run()
+			{
+				map = new FastMap<Integer, Integer>().shared();
+				for(int i = 0; i < ENTRIES; i++)
+					map.put(i, i);
+			}
+		});
+		System.out.println(String.format("Bytes per entry without values: ConcurrentIntObjectMap: ~%d, "
+			+ "shared FastMap: ~%d", footprint / ENTRIES, fastMapFootprint / ENTRIES));
+	}
+
+	/**
+	 * Rough heap size retained by given task, values are cached Integers or boxed by both maps equally so they are
+	 * measured separately and subtracted.
+	 */
+	private static long footprint(Runnable task)
+	{
+		long values = usedAfter(new Runnable(){
+			Integer[]	values;
+
+			@Override
+			public void run()
+			{
+				values = new Integer[ENTRIES];
+				for(int i = 0; i < ENTRIES; i++)
+					values[i] = i;
+			}
+		});
+		return usedAfter(task) - values + 4L * ENTRIES;
+	}
+
+	private static long usedAfter(Runnable task)
+	{
+		long before = usedMemory();
+		task.run();
+		long after = usedMemory();
+		/** keep task reachable until measured */
+		task.hashCode();
+		return after - before;
+	}
+
+	private static long usedMemory()
+	{
+		Runtime runtime = Runtime.getRuntime();
+		for(int i = 0; i < 3; i++)
+			System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
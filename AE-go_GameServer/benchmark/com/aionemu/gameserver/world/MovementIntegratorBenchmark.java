@@ -0,0 +1,91 @@
+/*
+ * This file is part of aion-emu <aion-emu.com>.
+ *
+ *  aion-emu is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-emu is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-emu.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.world;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.aionemu.gameserver.world.MovementIntegratorTest.TestWalker;
+
+/**
+ * Time of one step of map crowded with patrolling npcs: batched by {@link MovementIntegrator}, walker by walker in one
+ * loop, and with separate task per walker as scheduled move tasks did.
+ * 
+ * @author ATracer
+ */
+public class MovementIntegratorBenchmark
+{
+	private static final int	WALKERS	= 20000;
+	private static final int	STEPS	= 50;
+
+	public static void main(String[] args) throws Exception
+	{
+		WorldMapInstance instance = new WorldMapInstance(null, 1, WorldMapInstance.DEFAULT_CELL_SIZE);
+		MovementIntegrator integrator = instance.getMovementIntegrator();
+		for(TestWalker walker : MovementIntegratorTest.createWalkers(instance, WALKERS))
+			integrator.add(walker);
+
+		WorldMapInstance oldInstance = new WorldMapInstance(null, 1, WorldMapInstance.DEFAULT_CELL_SIZE);
+		List<TestWalker> oldWalkers = MovementIntegratorTest.createWalkers(oldInstance, WALKERS);
+
+		// warm up
+		for(int i = 0; i < STEPS; i++)
+		{
+			integrator.step();
+			for(TestWalker walker : oldWalkers)
+				walker.move();
+		}
+
+		long start = System.nanoTime();
+		for(int i = 0; i < STEPS; i++)
+			integrator.step();
+		long time = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for(int i = 0; i < STEPS; i++)
+		{
+			for(TestWalker walker : oldWalkers)
+				walker.move();
+		}
+		long oldTime = System.nanoTime() - start;
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		start = System.nanoTime();
+		for(int i = 0; i < STEPS; i++)
+		{
+			for(final TestWalker walker : oldWalkers)
+			{
+				executor.execute(new Runnable(){
+					@Override
+					public void run()
+					{
+						walker.move();
+					}
+				});
+			}
+		}
+		executor.shutdown();
+		executor.awaitTermination(1, TimeUnit.MINUTES);
+		long taskTime = System.nanoTime() - start;
+
+		System.out.println(String.format("%d walkers: %d us per batched step, %d us per step walker by walker, "
+			+ "%d us per step with task per walker", WALKERS, time / STEPS / 1000, oldTime / STEPS / 1000, taskTime
+			/ STEPS / 1000));
+	}
+}
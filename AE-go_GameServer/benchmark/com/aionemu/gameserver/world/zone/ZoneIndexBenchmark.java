@@ -0,0 +1,78 @@
+/*
+ * This file is part of aion-emu <aion-emu.com>.
+ *
+ *  aion-emu is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-emu is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-emu.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.world.zone;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Zone lookups per second of {@link ZoneIndex} with different cell sizes against linear scan of all zones of the map,
+ * using zones from static data. Run from game server directory.
+ * 
+ * @author ATracer
+ */
+public class ZoneIndexBenchmark
+{
+	private static final int	LOOKUPS	= 200000;
+
+	public static void main(String[] args) throws Exception
+	{
+		Map<Integer, List<ZoneInstance>> zonesByMap = ZoneIndexTest.loadZones();
+		Random rnd = new Random(9);
+		for(int cellSize : new int[] { 32, 64, 128, 256 })
+		{
+			long indexTime = 0, linearTime = 0, cells = 0;
+			int found = 0;
+			for(List<ZoneInstance> zones : zonesByMap.values())
+			{
+				ZoneIndex index = new ZoneIndex(zones, cellSize);
+				cells += index.getCellCount();
+				float[] points = ZoneIndexTest.randomPoints(rnd, zones, LOOKUPS / zonesByMap.size());
+
+				// warm up
+				for(int i = 0; i < points.length; i += 3)
+				{
+					index.findZone(points[i], points[i + 1], points[i + 2]);
+					ZoneIndexTest.findLinear(zones, points[i], points[i + 1], points[i + 2]);
+				}
+
+				long start = System.nanoTime();
+				for(int i = 0; i < points.length; i += 3)
+				{
+					if(index.findZone(points[i], points[i + 1], points[i + 2]) != null)
+						found++;
+				}
+				indexTime += System.nanoTime() - start;
+
+				start = System.nanoTime();
+				for(int i = 0; i < points.length; i += 3)
+				{
+					if(ZoneIndexTest.findLinear(zones, points[i], points[i + 1], points[i + 2]) != null)
+						found--;
+				}
+				linearTime += System.nanoTime() - start;
+			}
+			if(found != 0)
+				throw new IllegalStateException("ZoneIndex found other zones than linear scan");
+
+			long lookups = (long) (LOOKUPS / zonesByMap.size()) * zonesByMap.size();
+			System.out.println(String.format("ZoneIndex cell %d: %d cells, %d lookups/s, linear scan: %d lookups/s",
+				cellSize, cells, lookups * 1000000000L / indexTime, lookups * 1000000000L / linearTime));
+		}
+	}
+}
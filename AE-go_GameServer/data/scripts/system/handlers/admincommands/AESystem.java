@@ -16,17 +16,33 @@
  */
 package admincommands;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
+import com.aionemu.commons.network.Dispatcher;
+import com.aionemu.commons.network.NioServer;
+import com.aionemu.commons.network.PacketProcessor;
 import com.aionemu.commons.utils.AEInfos;
 import com.aionemu.gameserver.ShutdownHook;
 import com.aionemu.gameserver.ShutdownHook.ShutdownMode;
 import com.aionemu.gameserver.configs.administration.AdminConfig;
 import com.aionemu.gameserver.model.gameobjects.player.Player;
+import com.aionemu.gameserver.network.aion.AionConnection;
+import com.aionemu.gameserver.network.aion.AionPacketHandler;
+import com.aionemu.gameserver.taskmanager.tasks.AITaskManager;
+import com.aionemu.gameserver.taskmanager.tasks.MovementUpdater;
 import com.aionemu.gameserver.utils.AEVersions;
 import com.aionemu.gameserver.utils.PacketSendUtility;
 import com.aionemu.gameserver.utils.ThreadPoolManager;
 import com.aionemu.gameserver.utils.chathandlers.AdminCommand;
+import com.aionemu.gameserver.world.KnownList;
+import com.aionemu.gameserver.world.PlayerKnownList;
+import com.aionemu.gameserver.world.World;
 import com.google.inject.Inject;
 
 /**
@@ -38,11 +54,22 @@ import com.google.inject.Inject;
  * //sys shutdown <seconds> <announceInterval> - Shutdowner
  * //sys restart <seconds> <announceInterval> - Restarter
  * //sys threadpool - Thread pools info
+ * //sys packetprocessor - Client packet execution info
+ * //sys packets <count> - Received client packets per opcode
+ * //sys sendqueues <count> - Players with the biggest backlog of packets to send
+ * //sys dispatchers - Network io threads info
+ * //sys knownlist - Known list updates info
  */
 public class AESystem extends AdminCommand
 {
 	@Inject
 	private ShutdownHook shutdownHook;
+	@Inject
+	private AionPacketHandler aionPacketHandler;
+	@Inject
+	private World world;
+	@Inject
+	private NioServer nioServer;
 	
 	public AESystem()
 	{
@@ -155,5 +182,99 @@ public class AESystem extends AdminCommand
 				PacketSendUtility.sendMessage(admin, stat.replaceAll("\t", ""));
 			}
 		}
+		else if(params[0].equals("packetprocessor"))
+		{
+			PacketProcessor<AionConnection> processor = AionConnection.getPacketProcessor();
+			PacketSendUtility.sendMessage(admin, "Threads: " + processor.getThreadCount());
+			PacketSendUtility.sendMessage(admin, "Queued packets: " + processor.getQueuedPackets());
+			PacketSendUtility.sendMessage(admin, "Runnable connections: " + processor.getRunnableConnections());
+			PacketSendUtility.sendMessage(admin, "Executed packets: " + processor.getExecutedPackets());
+			PacketSendUtility.sendMessage(admin, "Avg wait time: " + processor.getAverageWaitTime() + " ms");
+			PacketSendUtility.sendMessage(admin, "Max wait time: " + processor.getMaxWaitTime() + " ms");
+		}
+		else if(params[0].equals("packets"))
+		{
+			int count = 10;
+			try
+			{
+				if(params.length > 1)
+					count = Integer.parseInt(params[1]);
+			}
+			catch(NumberFormatException e)
+			{
+				PacketSendUtility.sendMessage(admin, "Numbers only!");
+				return;
+			}
+			for(String stat : aionPacketHandler.getPacketStats(count))
+				PacketSendUtility.sendMessage(admin, stat);
+			PacketSendUtility.sendMessage(admin, "Coalesced server packets: " + AionConnection.getTotalCoalescedPackets());
+			for(String stat : PacketSendUtility.getPositionUpdateStats())
+				PacketSendUtility.sendMessage(admin, "Position updates " + stat);
+		}
+		else if(params[0].equals("sendqueues"))
+		{
+			int count = 10;
+			try
+			{
+				if(params.length > 1)
+					count = Integer.parseInt(params[1]);
+			}
+			catch(NumberFormatException e)
+			{
+				PacketSendUtility.sendMessage(admin, "Numbers only!");
+				return;
+			}
+
+			/** backlog keeps changing while sorting, so sort by its snapshot */
+			final Map<Player, Integer> backlog = new HashMap<Player, Integer>();
+			for(Iterator<Player> it = world.getPlayersIterator(); it.hasNext();)
+			{
+				Player player = it.next();
+				if(player.getClientConnection() != null)
+					backlog.put(player, player.getClientConnection().getQueuedSize());
+			}
+			List<Player> players = new ArrayList<Player>(backlog.keySet());
+			Collections.sort(players, new Comparator<Player>(){
+				@Override
+				public int compare(Player p1, Player p2)
+				{
+					return backlog.get(p2) - backlog.get(p1);
+				}
+			});
+
+			for(Player player : players.subList(0, Math.min(count, players.size())))
+			{
+				AionConnection con = player.getClientConnection();
+				PacketSendUtility.sendMessage(admin, player.getName() + ": " + con.getQueuedPackets() + " packets, "
+					+ con.getQueuedSize() + " bytes estimated, coalesced " + con.getCoalescedPackets() + ", dropped "
+					+ con.getDroppedPackets());
+			}
+			PacketSendUtility.sendMessage(admin, "Coalesced: " + AionConnection.getTotalCoalescedPackets()
+				+ ", dropped: " + AionConnection.getTotalDroppedPackets());
+		}
+		else if(params[0].equals("dispatchers"))
+		{
+			for(Dispatcher dispatcher : nioServer.getDispatchers())
+				PacketSendUtility.sendMessage(admin, dispatcher.toString());
+		}
+		else if(params[0].equals("knownlist"))
+		{
+			PacketSendUtility.sendMessage(admin, "Updates: " + KnownList.getFullUpdates());
+			PacketSendUtility.sendMessage(admin, "Skipped updates: " + KnownList.getSkippedUpdates());
+			PacketSendUtility.sendMessage(admin, "Seen objects: " + KnownList.getSeenObjects());
+			PacketSendUtility.sendMessage(admin, "Forgotten objects: " + KnownList.getForgottenObjects());
+			PacketSendUtility.sendMessage(admin, "Players culled by visibility limit: "
+				+ PlayerKnownList.getCulledPlayers());
+		}
+		else if(params[0].equals("ai"))
+		{
+			for(String stat : AITaskManager.getInstance().getStats())
+				PacketSendUtility.sendMessage(admin, stat);
+		}
+		else if(params[0].equals("movement"))
+		{
+			for(String stat : MovementUpdater.getInstance().getStats())
+				PacketSendUtility.sendMessage(admin, stat);
+		}
 	}
 }
\ No newline at end of file
@@ -36,6 +36,8 @@ import com.aionemu.gameserver.network.loginserver.LoginServer;
 import com.aionemu.gameserver.questEngine.QuestEngine;
 import com.aionemu.gameserver.services.ServiceProxy;
 import com.aionemu.gameserver.spawnengine.SpawnEngine;
+import com.aionemu.gameserver.taskmanager.tasks.KnownListUpdater;
+import com.aionemu.gameserver.taskmanager.tasks.MovementUpdater;
 import com.aionemu.gameserver.taskmanager.tasks.PacketBroadcaster;
 import com.aionemu.gameserver.utils.AEVersions;
 import com.aionemu.gameserver.utils.DeadlockDetector;
@@ -104,6 +106,9 @@ public class GameServer
 
 		Util.printSection("TaskManagers");
 		PacketBroadcaster.getInstance();
+		if(TaskManagerConfig.KNOWNLIST_UPDATE_INTERVAL > 0)
+			KnownListUpdater.getInstance();
+		MovementUpdater.getInstance();
 
 		Util.printSection("System");
 		AEVersions.printFullVersionInfo();
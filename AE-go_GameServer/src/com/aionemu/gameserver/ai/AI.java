@@ -18,12 +18,10 @@ package com.aionemu.gameserver.ai;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.aionemu.gameserver.ai.desires.Desire;
 import com.aionemu.gameserver.ai.desires.DesireQueue;
-import com.aionemu.gameserver.ai.desires.impl.CounterBasedDesireFilter;
-import com.aionemu.gameserver.ai.desires.impl.GeneralDesireIteratorHandler;
 import com.aionemu.gameserver.ai.events.Event;
 import com.aionemu.gameserver.ai.events.handler.EventHandler;
 import com.aionemu.gameserver.ai.npcai.DummyAi;
@@ -31,7 +29,10 @@ import com.aionemu.gameserver.ai.state.AIState;
 import com.aionemu.gameserver.ai.state.handler.StateHandler;
 import com.aionemu.gameserver.model.gameobjects.Creature;
 import com.aionemu.gameserver.model.gameobjects.player.Player;
-import com.aionemu.gameserver.utils.ThreadPoolManager;
+import com.aionemu.gameserver.taskmanager.tasks.AITaskManager;
+import com.aionemu.gameserver.taskmanager.tasks.AITaskManager.AITask;
+import com.aionemu.gameserver.world.MapRegion;
+import com.aionemu.gameserver.world.MapTask;
 
 public abstract class AI<T extends Creature> implements Runnable
 {	
@@ -51,7 +52,17 @@ public abstract class AI<T extends Creature> implements Runnable
 	
 	protected boolean isStateChanged = false;
 	
-	private Future<?> aiTask;	
+	private volatile AITask aiTask;	
+	/**
+	 * Map task run by {@link #aiTask}, cancelled on stop so queued run of it is skipped.
+	 */
+	private MapTask mapTask;
+
+	/**
+	 * True if ai task was stopped or not started because region of owner is dormant. Only the thread that clears it
+	 * restarts ai task.
+	 */
+	private final AtomicBoolean suspended = new AtomicBoolean();
 	
 	/**
 	 * 
@@ -145,7 +156,12 @@ public abstract class AI<T extends Creature> implements Runnable
 	@Override
 	public void run()
 	{
-		desireQueue.iterateDesires(new GeneralDesireIteratorHandler(this), new CounterBasedDesireFilter());
+		if(isDormant())
+		{
+			suspend();
+			return;
+		}
+		desireQueue.handleDesires(this);
 		// TODO: move to home
 		if(desireQueue.isEmpty() || isStateChanged)
 		{
@@ -153,26 +169,69 @@ public abstract class AI<T extends Creature> implements Runnable
 		}
 	}
 
-	public void schedule()
+	/**
+	 * Start ai task unless it's running already. Synchronized with {@link #stop()}, so owner never gets two tasks and
+	 * task is never left running after stop.
+	 */
+	public synchronized void schedule()
 	{
 		if(!isScheduled())
 		{
-			aiTask = ThreadPoolManager.getInstance().scheduleAiAtFixedRate(this, 1000, 1000);
+			if(isDormant())
+			{
+				suspended.set(true);
+				return;
+			}
+			mapTask = new MapTask(owner, this);
+			aiTask = AITaskManager.getInstance().add(mapTask);
 		}	
 	}
 
-	public void stop()
+	public synchronized void stop()
 	{
-		if(aiTask != null && !aiTask.isCancelled())
+		suspended.set(false);
+		if(aiTask != null)
 		{
-			aiTask.cancel(true);
+			mapTask.cancel();
+			mapTask = null;
+			AITaskManager.getInstance().remove(aiTask);
 			aiTask = null;
 		}
 	}
 
 	public boolean isScheduled()
 	{
-		return aiTask != null && !aiTask.isCancelled();
+		return aiTask != null && aiTask.isActive();
+	}
+
+	/**
+	 * @return true if owner is in dormant region.
+	 */
+	private boolean isDormant()
+	{
+		MapRegion region = owner.getActiveRegion();
+		return region != null && !region.isActive();
+	}
+
+	/**
+	 * Stop ai task until region of owner is active again.
+	 */
+	private synchronized void suspend()
+	{
+		stop();
+		suspended.set(true);
+		/** region could be activated meanwhile */
+		if(!isDormant())
+			resume();
+	}
+
+	/**
+	 * Restart ai task that was suspended in dormant region.
+	 */
+	public synchronized void resume()
+	{
+		if(suspended.compareAndSet(true, false))
+			schedule();
 	}
 	
 	public void clearDesires()
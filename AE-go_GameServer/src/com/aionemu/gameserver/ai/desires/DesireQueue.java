@@ -18,11 +18,17 @@ package com.aionemu.gameserver.ai.desires;
 
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
-import java.util.PriorityQueue;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.aionemu.gameserver.ai.AI;
 
 /**
  * This class represents desire queue, it's thread-safe. Desires can be added and removed. If desire is added - previous
- * desires will be checked, if same desire found then desire previous one will be removed from the queue
+ * desires will be checked, if same desire found then desire previous one will be removed from the queue<br>
+ * Npc has only few desires, so they are kept in array of fixed capacity sorted by desire power. Every desire class gets
+ * its own type index, desires are looked up by equals only among desires of the same type and only if queue holds
+ * some desire of that type.
  * 
  * @author SoulKeeper
  * @see com.aionemu.gameserver.ai.desires.Desire
@@ -31,9 +37,36 @@ import java.util.PriorityQueue;
 public class DesireQueue
 {
 	/**
-	 * Prioritized Queue of desires, lazy initialization.
+	 * Maximal number of desires in one queue.
+	 */
+	public static final int										MAX_DESIRES	= 16;
+
+	/**
+	 * Type indexes of desire classes, assigned on first use.
+	 */
+	private static final ConcurrentHashMap<Class<?>, Integer>	typeIndexes	= new ConcurrentHashMap<Class<?>, Integer>();
+
+	/**
+	 * Desires sorted by {@link Desire#compareTo(Desire)}, most wanted first.
+	 */
+	private final Desire[]										desires		= new Desire[MAX_DESIRES];
+
+	/**
+	 * Type index of every desire in {@link #desires}.
+	 */
+	private final int[]											types		= new int[MAX_DESIRES];
+
+	/**
+	 * One bit for every type (modulo 32) that has desire in this queue.
+	 */
+	private int													typeMask;
+
+	private int													size;
+
+	/**
+	 * Incremented by every change of the array, so iteration can detect changes done by handled desire.
 	 */
-	protected PriorityQueue<Desire>	queue;
+	private int													modCount;
 
 	/**
 	 * Retuns first element of this queue not removing it. Returns null if there is no elements.
@@ -42,7 +75,7 @@ public class DesireQueue
 	 */
 	public synchronized Desire peek()
 	{
-		return queue != null ? queue.peek() : null;
+		return size > 0 ? desires[0] : null;
 	}
 
 	/**
@@ -52,12 +85,12 @@ public class DesireQueue
 	 */
 	public synchronized Desire poll()
 	{
-		if(queue != null)
-		{
-			return queue.poll();
-		}
+		if(size == 0)
+			return null;
 
-		return null;
+		Desire desire = desires[0];
+		removeAt(0);
+		return desire;
 	}
 
 	/**
@@ -72,45 +105,54 @@ public class DesireQueue
 	 * 3). If they are not the same instances, add desire power from old instance to new instance, if they are - do
 	 * nothing.<br>
 	 * <br>
-	 * After all add new desire instance to the list.
+	 * After all add new desire instance to the list. If queue is full the least wanted desire is cleared and dropped, it
+	 * can be the added one.
 	 * 
 	 * @param desire
 	 *            desire instance to add
 	 */
 	public synchronized void addDesire(Desire desire)
 	{
-		// Lazy initialization of desire queue
-		if(queue == null)
+		int type = typeIndex(desire);
+		int index = indexOf(desire, type);
+		if(index >= 0)
 		{
-			queue = new PriorityQueue<Desire>();
+			Desire old = desires[index];
+			removeAt(index);
+
+			// If current desire instance was not at the list - increase it's power
+			// by the value of another instance power
+			if(desire != old)
+			{
+				desire.increaseDesirePower(old.getDesirePower());
+			}
 		}
 
-		// Iterate over the list to find similiar desires
-		Iterator<Desire> iterator = queue.iterator();
-		while(iterator.hasNext())
+		if(size == MAX_DESIRES)
 		{
-			Desire iterated = iterator.next();
-
-			// Find similiar desires by #equals method, they can be different instances.
-			if(desire.equals(iterated))
+			Desire weakest = desires[size - 1];
+			if(desire.compareTo(weakest) >= 0)
 			{
-				// Remove the old desire from the list
-				iterator.remove();
-
-				// If current desire instance was not at the list - increase it's power
-				// by the value of another instance power
-				// and after that add it to the list
-				if(desire != iterated)
-				{
-					desire.increaseDesirePower(iterated.getDesirePower());
-				}
-
-				// Break iteration, desire list can't contain two same desires
-				break;
+				desire.onClear();
+				return;
 			}
+			removeAt(size - 1);
+			weakest.onClear();
+		}
+
+		// insert after desires that are wanted at least as much
+		int position = size;
+		while(position > 0 && desire.compareTo(desires[position - 1]) < 0)
+		{
+			desires[position] = desires[position - 1];
+			types[position] = types[position - 1];
+			position--;
 		}
-		// finally add desire to the list
-		queue.add(desire);
+		desires[position] = desire;
+		types[position] = type;
+		typeMask |= 1 << type;
+		size++;
+		modCount++;
 	}
 
 	/**
@@ -123,7 +165,109 @@ public class DesireQueue
 	 */
 	public synchronized boolean removeDesire(Desire desire)
 	{
-		return queue != null && queue.remove(desire);
+		int index = indexOf(desire, typeIndex(desire));
+		if(index < 0)
+			return false;
+
+		removeAt(index);
+		return true;
+	}
+
+	/**
+	 * Returns type index of desire class.
+	 */
+	private static int typeIndex(Desire desire)
+	{
+		Class<?> type = desire.getClass();
+		Integer index = typeIndexes.get(type);
+		if(index == null)
+		{
+			synchronized(typeIndexes)
+			{
+				index = typeIndexes.get(type);
+				if(index == null)
+				{
+					index = typeIndexes.size();
+					typeIndexes.put(type, index);
+				}
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Index of desire equal to given one. Desires can be equal only if they are of the same type, so other types are
+	 * skipped without calling equals.
+	 */
+	private int indexOf(Desire desire, int type)
+	{
+		if((typeMask & 1 << type) == 0)
+			return -1;
+
+		for(int i = 0; i < size; i++)
+		{
+			Desire d = desires[i];
+			if(types[i] == type && (d == desire || desire.equals(d)))
+				return i;
+		}
+		return -1;
+	}
+
+	private void removeAt(int index)
+	{
+		size--;
+		System.arraycopy(desires, index + 1, desires, index, size - index);
+		System.arraycopy(types, index + 1, types, index, size - index);
+		desires[size] = null;
+		modCount++;
+
+		typeMask = 0;
+		for(int i = 0; i < size; i++)
+			typeMask |= 1 << types[i];
+	}
+
+	/**
+	 * Handles every desire that is ready to run, most wanted first. Desire that fails to handle is cleared and removed.
+	 * Desires may add, remove and clear desires of this queue while they are handled, in that case remaining desires
+	 * are handled next time.
+	 * 
+	 * @param ai
+	 */
+	public synchronized void handleDesires(AI<?> ai)
+	{
+		int expectedModCount = modCount;
+		for(int i = 0; i < size; i++)
+		{
+			Desire desire = desires[i];
+			if(!desire.isReadyToRun())
+				continue;
+
+			boolean handled = desire.handleDesire(ai);
+			if(modCount != expectedModCount)
+			{
+				/** queue was changed by the desire */
+				if(!handled)
+				{
+					desire.onClear();
+					for(int j = 0; j < size; j++)
+					{
+						if(desires[j] == desire)
+						{
+							removeAt(j);
+							break;
+						}
+					}
+				}
+				return;
+			}
+
+			if(!handled)
+			{
+				desire.onClear();
+				removeAt(i--);
+				expectedModCount = modCount;
+			}
+		}
 	}
 
 	/**
@@ -152,13 +296,7 @@ public class DesireQueue
 	public synchronized void iterateDesires(DesireIteratorHandler handler, DesireIteratorFilter... filters)
 		throws ConcurrentModificationException
 	{
-
-		if(queue == null)
-		{
-			return;
-		}
-
-		Iterator<Desire> iterator = queue.iterator();
+		Iterator<Desire> iterator = new DesireIterator();
 		outer: while(iterator.hasNext())
 		{
 			Desire desire = iterator.next();
@@ -188,7 +326,7 @@ public class DesireQueue
 	 */
 	public synchronized boolean contains(Desire desire)
 	{
-		return queue.contains(desire);
+		return indexOf(desire, typeIndex(desire)) >= 0;
 	}
 
 	/**
@@ -198,7 +336,7 @@ public class DesireQueue
 	 */
 	public synchronized boolean isEmpty()
 	{
-		return queue == null || queue.isEmpty();
+		return size == 0;
 	}
 
 	/**
@@ -206,11 +344,11 @@ public class DesireQueue
 	 */
 	public synchronized void clear()
 	{
-		if(queue != null)
+		while(size > 0)
 		{
-			Desire desire = null;
-			while((desire = queue.poll()) != null)
-				desire.onClear();
+			Desire desire = desires[0];
+			removeAt(0);
+			desire.onClear();
 		}
 	}
 
@@ -221,6 +359,46 @@ public class DesireQueue
 	 */
 	public synchronized int size()
 	{
-		return queue == null ? 0 : queue.size();
+		return size;
+	}
+
+	/**
+	 * Iterator used by {@link DesireQueue#iterateDesires(DesireIteratorHandler, DesireIteratorFilter...)}
+	 */
+	private class DesireIterator implements Iterator<Desire>
+	{
+		private int	cursor;
+		private int	last				= -1;
+		private int	expectedModCount	= modCount;
+
+		@Override
+		public boolean hasNext()
+		{
+			return cursor < size;
+		}
+
+		@Override
+		public Desire next()
+		{
+			if(modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if(cursor >= size)
+				throw new NoSuchElementException();
+			last = cursor++;
+			return desires[last];
+		}
+
+		@Override
+		public void remove()
+		{
+			if(last < 0)
+				throw new IllegalStateException();
+			if(modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			removeAt(last);
+			cursor = last;
+			last = -1;
+			expectedModCount = modCount;
+		}
 	}
-}
\ No newline at end of file
+}
@@ -48,6 +48,11 @@ public final class AggressionDesire extends AbstractDesire
 	public boolean handleDesire(AI<?> ai)
 	{
 		if (npc == null) return false;
+
+		float npcX = npc.getX();
+		float npcY = npc.getY();
+		float npcZ = npc.getZ();
+		int aggroRange = npc.getAggroRange();
 		
 		for(VisibleObject visibleObject : npc.getKnownList())
 		{
@@ -58,8 +63,9 @@ public final class AggressionDesire extends AbstractDesire
 			{
 				final Player player = (Player) visibleObject;
 				
-				if(!player.getLifeStats().isAlreadyDead() && MathUtil.isInRange(npc, player, npc.getAggroRange())
-					&& (Math.abs(player.getZ() - npc.getZ()) < 30))
+				if((Math.abs(player.getZ() - npcZ) < 30)
+					&& MathUtil.isInRange(npcX, npcY, player.getX(), player.getY(), aggroRange)
+					&& !player.getLifeStats().isAlreadyDead())
 				{
 
 					if(!npc.canSee(visibleObject))
@@ -56,8 +56,7 @@ public class MoveToTargetDesire extends AbstractDesire implements MoveDesire
 		if(!owner.getMoveController().isScheduled())
 			owner.getMoveController().schedule();
 
-		double distance = owner.getMoveController().getDistanceToTarget();
-		if(distance > 150)
+		if(!owner.getMoveController().isTargetInRange(150))
 			return false;
 		
 		return true;
@@ -45,4 +45,16 @@ public class GSConfig
 	 */
 	@Property(key = "gameserver.mode", defaultValue = "1")
 	public static int		SERVER_MODE;
+
+	/**
+	 * Max number of other players that player sees in crowded places, 0 for no limit
+	 */
+	@Property(key = "gameserver.visibility.maxplayers", defaultValue = "150")
+	public static int		VISIBLE_PLAYERS_LIMIT;
+
+	/**
+	 * Suspend ai and movement of npcs in regions that have no players nearby
+	 */
+	@Property(key = "gameserver.world.dormantregions", defaultValue = "true")
+	public static boolean	DORMANT_REGIONS;
 }
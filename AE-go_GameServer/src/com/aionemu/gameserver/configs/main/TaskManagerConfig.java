@@ -31,4 +31,10 @@ public class TaskManagerConfig
 	 */
 	@Property(key = "gameserver.deadlock.enable", defaultValue = "true")
 	public static boolean	DEADLOCK_DETECTOR_ENABLED;
+
+	/**
+	 * Interval of known list updates of moving objects [ms], 0 to update right after each move
+	 */
+	@Property(key = "gameserver.knownlist.updateinterval", defaultValue = "200")
+	public static int		KNOWNLIST_UPDATE_INTERVAL;
 }
@@ -32,6 +32,24 @@ public class ThreadConfig
 	
 	@Property(key = "thread.runtime", defaultValue = "5000")
 	public static long MAXIMUM_RUNTIME_IN_MILLISEC_WITHOUT_WARNING;
+
+	/**
+	 * Run ai, movement, effects and client packets of objects of each map instance one at a time on its own executor
+	 */
+	@Property(key = "thread.mapexecutors", defaultValue = "false")
+	public static boolean MAP_EXECUTORS;
+
+	/**
+	 * Number of threads sweeping ai tasks of npcs
+	 */
+	@Property(key = "thread.aithreads", defaultValue = "2")
+	public static int AI_THREADS;
+
+	/**
+	 * Schedule one-shot tasks on timing wheel instead of scheduled thread pool
+	 */
+	@Property(key = "thread.timingwheel", defaultValue = "true")
+	public static boolean TIMING_WHEEL;
 	
 	public static int THREAD_POOL_SIZE;
 	
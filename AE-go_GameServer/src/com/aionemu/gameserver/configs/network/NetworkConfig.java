@@ -70,6 +70,43 @@ public class NetworkConfig
 	@Property(key = "gameserver.network.nio.threads.write", defaultValue = "0")
 	public static int				NIO_WRITE_THREADS;
 
+	/**
+	 * Number of Threads that will handle io read and write of connections (>= 0)
+	 */
+	@Property(key = "gameserver.network.nio.threads.readwrite", defaultValue = "1")
+	public static int				NIO_READ_WRITE_THREADS;
+
+	/**
+	 * Minimum number of Threads that will execute client packets (> 0)
+	 */
+	@Property(key = "gameserver.network.packetprocessor.threads.min", defaultValue = "1")
+	public static int				PACKET_PROCESSOR_MIN_THREADS;
+
+	/**
+	 * Maximum number of Threads that will execute client packets (>= min)
+	 */
+	@Property(key = "gameserver.network.packetprocessor.threads.max", defaultValue = "8")
+	public static int				PACKET_PROCESSOR_MAX_THREADS;
+
+	/**
+	 * Use pooled direct buffers for client connections io
+	 */
+	@Property(key = "gameserver.network.nio.bufferpool", defaultValue = "false")
+	public static boolean			NIO_BUFFER_POOL;
+
+	/**
+	 * Max number of packets waiting to be sent to one client (> 0)
+	 */
+	@Property(key = "gameserver.network.sendqueue.maxpackets", defaultValue = "4000")
+	public static int				SEND_QUEUE_MAX_PACKETS;
+
+	/**
+	 * Max estimated size of packets waiting to be sent to one client (> 0), packets that weren't rendered yet count as
+	 * 64 bytes
+	 */
+	@Property(key = "gameserver.network.sendqueue.maxsize", defaultValue = "1048576")
+	public static int				SEND_QUEUE_MAX_SIZE;
+
 	/**
 	 * Number of Threads that will handle io write (>= 0)
 	 */
@@ -90,6 +90,12 @@ public abstract class CreatureController<T extends Creature> extends VisibleObje
 		this.getOwner().getEffectController().removeAllEffects();
 		this.getOwner().getMoveController().stop();
 		this.getOwner().setState(CreatureState.DEAD);
+
+		for(VisibleObject visibleObject : getOwner().getKnownList())
+		{
+			if(visibleObject instanceof Npc)
+				((Npc) visibleObject).getAggroList().stopHating(getOwner());
+		}
 	}
 
 	/**
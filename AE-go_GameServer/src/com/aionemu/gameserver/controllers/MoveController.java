@@ -16,7 +16,7 @@
  */
 package com.aionemu.gameserver.controllers;
 
-import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.log4j.Logger;
 
@@ -27,19 +27,24 @@ import com.aionemu.gameserver.model.gameobjects.stats.StatEnum;
 import com.aionemu.gameserver.network.aion.serverpackets.SM_MOVE;
 import com.aionemu.gameserver.utils.MathUtil;
 import com.aionemu.gameserver.utils.PacketSendUtility;
-import com.aionemu.gameserver.utils.ThreadPoolManager;
+import com.aionemu.gameserver.world.MapRegion;
+import com.aionemu.gameserver.world.MovementIntegrator;
+import com.aionemu.gameserver.world.MovementIntegrator.Mover;
 
 /**
+ * Moves owner toward its target or followed object, steps are done by {@link MovementIntegrator} of owner's map
+ * instance together with other walking objects.
+ * 
  * @author ATracer
  *
  */
-public class MoveController
+public class MoveController implements MovementIntegrator.Walker
 {
 
 	@SuppressWarnings("unused")
 	private static final Logger	log	= Logger.getLogger(MoveController.class);
 	
-	private Future<?> moveTask;
+	private volatile Mover mover;
 	private Creature owner;
 	private boolean directionChanged = true;
 
@@ -51,10 +56,20 @@ public class MoveController
 	private boolean isStopped = false;
 
 	private int moveCounter;
+	/**
+	 * Number of periodic position updates broadcast for owner.
+	 */
+	private int positionUpdates;
 	private float speed = 0;
 	private float distance = 2;
 	
 	private boolean walking;
+
+	/**
+	 * True if owner was removed from integrator because region of owner is dormant. Only the thread that clears it
+	 * adds owner back.
+	 */
+	private final AtomicBoolean suspended = new AtomicBoolean();
 	
 	/**
 	 * 
@@ -114,16 +129,45 @@ public class MoveController
 		this.targetZ = z;
 	}
 
+	/**
+	 * @return sequence number of next periodic position update of owner.
+	 */
+	public int nextPositionUpdate()
+	{
+		return positionUpdates++;
+	}
+
+	@Override
+	public Creature getOwner()
+	{
+		return owner;
+	}
+
+	@Override
+	public float getSpeed()
+	{
+		return speed;
+	}
+
+	@Override
+	public float getDistance()
+	{
+		return distance;
+	}
+
+	@Override
 	public float getTargetX()
 	{
 		return targetX;
 	}
 
+	@Override
 	public float getTargetY()
 	{
 		return targetY;
 	}
 
+	@Override
 	public float getTargetZ()
 	{
 		return targetZ;
@@ -131,37 +175,79 @@ public class MoveController
 
 	public boolean isScheduled()
 	{
-		return moveTask != null && !moveTask.isCancelled();
+		return mover != null;
 	}
 
-	public void schedule()
+	/**
+	 * Add owner to movement integrator of its map instance unless it's there already. Synchronized with
+	 * {@link #stop()}, so owner is never added twice and never left in integrator after stop.
+	 */
+	public synchronized void schedule()
 	{
+		if(mover != null)
+			return;
+
 		if(speed == 0)
 			speed = owner.getGameStats().getCurrentStat(StatEnum.SPEED) / 1000;
 		
-		moveTask = ThreadPoolManager.getInstance().scheduleAiAtFixedRate(new Runnable(){
+		MapRegion region = owner.getActiveRegion();
+		if(region != null)
+			mover = region.getParent().getMovementIntegrator().add(this);
+	}
 
-			@Override
-			public void run()
-			{
-				move();
-			}
-		}, 0, 200);
+	/**
+	 * Remove owner from integrator it was added to.
+	 */
+	private synchronized void unschedule()
+	{
+		Mover m = mover;
+		if(m != null)
+		{
+			mover = null;
+			m.getIntegrator().remove(m);
+		}
 	}
 
-	private void move()
+	@Override
+	public boolean prepareStep()
 	{
+		MapRegion region = owner.getActiveRegion();
+		/** owner was despawned */
+		if(region == null)
+		{
+			unschedule();
+			return false;
+		}
+
+		if(!region.isActive())
+		{
+			suspend();
+			return false;
+		}
+
+		/** owner was moved to another map instance */
+		Mover m = mover;
+		if(m != null && m.getIntegrator() != region.getParent().getMovementIntegrator())
+		{
+			synchronized(this)
+			{
+				/** unless owner was stopped meanwhile */
+				if(mover == m)
+				{
+					unschedule();
+					schedule();
+				}
+			}
+			return false;
+		}
+
 		/**
 		 * Demo npc skills - prevent movement while casting
 		 */
 		if(!owner.canPerformMove() || owner.isCasting())
 		{
-			if(!isStopped)
-			{
-				isStopped = true;
-				owner.getController().stopMoving();
-			}
-			return;
+			onArrived();
+			return false;
 		}
 
 		VisibleObject target = owner.getTarget();
@@ -170,42 +256,63 @@ public class MoveController
 		{
 			setNewDirection(target.getX(), target.getY(), target.getZ());
 		}
+		return true;
+	}
 
-		float ownerX = owner.getX();
-		float ownerY = owner.getY();
-		float ownerZ = owner.getZ();
-
-		double dist = MathUtil.getDistance(ownerX, ownerY, ownerZ, targetX, targetY, targetZ);
-		if(dist > this.distance)
+	@Override
+	public int onStep(float x, float y, float z, byte heading)
+	{
+		MapRegion region = owner.getActiveRegion();
+		/** owner was despawned since prepareStep */
+		if(region == null)
 		{
-			isStopped = false;
-
+			unschedule();
+			return 0;
+		}
 
-			float x2 = (float) (((targetX - ownerX)/dist) * speed * 0.2) ;
-			float y2 = (float) (((targetY - ownerY)/dist) * speed * 0.2) ;
-			float z2 = (float) (((targetZ - ownerZ)/dist) * speed * 0.2) ; 
+		isStopped = false;
+		moveCounter++;
+		region.getWorld().updatePosition(owner, x, y, z, heading, false);
 
-			byte heading2 = (byte) (Math.toDegrees(Math.atan2(y2, x2))/3) ;
+		int flags = moveCounter % 5 == 0 ? MovementIntegrator.STEP_KNOWNLIST : 0;
+		if(directionChanged)
+		{
+			directionChanged = false;
+			flags |= MovementIntegrator.STEP_DIRECTION;
+		}
+		return flags;
+	}
 
-			if(directionChanged)
-			{
-				PacketSendUtility.broadcastPacket(owner, new SM_MOVE(owner,	ownerX, ownerY, ownerZ,
-					(float) (x2 / 0.2) , (float) (y2 / 0.2) , 0 , heading2, MovementType.MOVEMENT_START_KEYBOARD));
-				directionChanged = false;
-			}
+	@Override
+	public void onDirectionChanged(float x, float y, float z, float vx, float vy, byte heading)
+	{
+		PacketSendUtility.broadcastPacket(owner, new SM_MOVE(owner, x, y, z, vx, vy, 0, heading,
+			MovementType.MOVEMENT_START_KEYBOARD));
+	}
 
-			moveCounter++;
-			owner.getActiveRegion().getWorld().updatePosition(owner, 
-				ownerX + x2, ownerY + y2, ownerZ + z2, heading2, moveCounter % 5 == 0);
+	@Override
+	public void onArrived()
+	{
+		if(!isStopped)
+		{
+			isStopped = true;
+			owner.getController().stopMoving();
 		}
-		else
+	}
+
+	/**
+	 * @param range
+	 * @return true if owner is nearer than given range to its target.
+	 */
+	public boolean isTargetInRange(float range)
+	{
+		if(isFollowTarget)
 		{
-			if(!isStopped)
-			{
-				isStopped = true;
-				owner.getController().stopMoving();
-			}
+			VisibleObject target = owner.getTarget();
+			if(target != null)
+				return MathUtil.isIn3dRange(owner, target, range);
 		}
+		return MathUtil.isIn3dRange(owner.getX(), owner.getY(), owner.getZ(), targetX, targetY, targetZ, range);
 	}
 
 	public double getDistanceToTarget()
@@ -221,14 +328,40 @@ public class MoveController
 		return MathUtil.getDistance(owner.getX(), owner.getY(), owner.getZ(), targetX, targetY, targetZ);
 	}
 
-	public void stop()
+	/**
+	 * @return true if owner is in dormant region.
+	 */
+	private boolean isDormant()
+	{
+		MapRegion region = owner.getActiveRegion();
+		return region != null && !region.isActive();
+	}
+
+	/**
+	 * Stop moving owner until region of owner is active again, owner keeps its target and walking state.
+	 */
+	private synchronized void suspend()
+	{
+		unschedule();
+		suspended.set(true);
+		/** region could be activated meanwhile */
+		if(!isDormant())
+			resume();
+	}
+
+	/**
+	 * Continue moving owner that was suspended in dormant region.
+	 */
+	public synchronized void resume()
+	{
+		if(suspended.compareAndSet(true, false))
+			schedule();
+	}
+
+	public synchronized void stop()
 	{
 		this.walking = false;
-		
-		if(moveTask != null)
-		{
-			moveTask.cancel(true);
-			moveTask = null;
-		}
+		this.suspended.set(false);
+		unschedule();
 	}
 }
@@ -16,15 +16,18 @@
  */
 package com.aionemu.gameserver.controllers.attack;
 
-import javolution.util.FastMap;
+import java.util.Arrays;
 
 import org.apache.log4j.Logger;
 
 import com.aionemu.gameserver.ai.events.Event;
 import com.aionemu.gameserver.model.gameobjects.Creature;
-import com.aionemu.gameserver.model.gameobjects.Npc;
 
 /**
+ * Hate and damage of every attacker of npc. Attackers occupy slots of parallel arrays, hate and damage are kept as
+ * primitives. Slot of the most hated attacker is updated on every hate change, so {@link #getMostHated()} doesn't scan
+ * the list. Dead attackers stop being hated when they die and attackers that npc doesn't see anymore are removed.
+ * 
  * @author ATracer, KKnD
  *
  */
@@ -33,30 +36,38 @@ public class AggroList
 	@SuppressWarnings("unused")
 	private static final Logger	log	= Logger.getLogger(AggroList.class);
 	
-	private Npc owner;
+	private static final Creature[]	EMPTY	= new Creature[0];
 	
-	private FastMap<Creature, AggroInfo> aggroList = new FastMap<Creature, AggroInfo>().shared();
+	private Creature owner;
 	
-	public AggroList(Npc owner)
-	{
-		this.owner = owner;
-	}
-
 	/**
-	 *  AggroInfo:
-	 *  - hate of creature
-	 *  - damage of creature
+	 * Attackers by slot, only first size slots are used
+	 */
+	private Creature[]	attackers	= EMPTY;
+	/**
+	 * Object ids of attackers, scanned when looking up slot of attacker
+	 */
+	private int[]		objectIds	= new int[0];
+	/**
+	 * Hate of attacker in the same slot
+	 */
+	private int[]		hate		= new int[0];
+	/**
+	 * Damage dealt by attacker in the same slot
+	 */
+	private int[]		damage		= new int[0];
+	/**
+	 * Number of used slots
+	 */
+	private int			size;
+	/**
+	 * Slot of attacker with the highest hate or -1 if nobody has positive hate
 	 */
-	public final class AggroInfo
+	private int			mostHatedSlot	= -1;
+	
+	public AggroList(Creature owner)
 	{
-		protected Creature attacker;
-		protected int hate;
-		protected int damage;
-
-		AggroInfo(Creature pAttacker)
-		{
-			attacker = pAttacker;
-		}
+		this.owner = owner;
 	}
 
 	/**
@@ -69,13 +80,16 @@ public class AggroList
 		if (creature == null)
 			return;
 
-		AggroInfo ai = getAggroInfo(creature);
-		ai.damage += damage;
-		/**
-		 * For now we add hate equal to each damage received
-		 * Additionally there will be broadcast of extra hate
-		 */
-		ai.hate += damage;
+		synchronized(this)
+		{
+			int slot = getOrCreateSlot(creature);
+			this.damage[slot] += damage;
+			/**
+			 * For now we add hate equal to each damage received
+			 * Additionally there will be broadcast of extra hate
+			 */
+			setHate(slot, hate[slot] + damage);
+		}
 		
 		owner.getAi().handleEvent(Event.ATTACKED);
 	}
@@ -91,44 +105,32 @@ public class AggroList
 		if (creature == null)
 			return;
 
-		AggroInfo ai = getAggroInfo(creature);
-		ai.hate += hate;
-
-		if(ai.hate < 1)
-			ai.hate = 1;
+		synchronized(this)
+		{
+			int slot = getOrCreateSlot(creature);
+			setHate(slot, Math.max(this.hate[slot] + hate, 1));
+		}
 		
 		owner.getAi().handleEvent(Event.ATTACKED);
 	}
 	
 	/**
+	 * Cached most hated attacker is checked to be still alive and known, otherwise it stops being hated and next one is
+	 * checked.
 	 * 
 	 * @return most hated creature
 	 */
-	public Creature getMostHated()
+	public synchronized Creature getMostHated()
 	{
-		if (aggroList.isEmpty())
-			return null;
-
-		Creature mostHated = null;
-		int maxHate = 0;
-
-		for (AggroInfo ai : aggroList.values())
+		while(mostHatedSlot >= 0)
 		{
-			if (ai == null)
-				continue;
-
-			if(ai.attacker.getLifeStats().isAlreadyDead()
-				|| !owner.getKnownList().knowns(ai.attacker))
-				ai.hate = 0;
+			Creature mostHated = attackers[mostHatedSlot];
+			if(!mostHated.getLifeStats().isAlreadyDead() && owner.getKnownList().knowns(mostHated))
+				return mostHated;
 
-			if (ai.hate > maxHate)
-			{
-				mostHated = ai.attacker;
-				maxHate = ai.hate;
-			}
+			setHate(mostHatedSlot, 0);
 		}
-
-		return mostHated;
+		return null;
 	}	
 	
 	/**
@@ -162,11 +164,11 @@ public class AggroList
 	 * 
 	 * @param creature
 	 */
-	public void stopHating(Creature creature)
+	public synchronized void stopHating(Creature creature)
 	{
-		AggroInfo aggroInfo = aggroList.get(creature);
-		if(aggroInfo != null)
-			aggroInfo.hate = 0;
+		int slot = indexOf(creature);
+		if(slot >= 0)
+			setHate(slot, 0);
 	}
 	
 	/**
@@ -174,33 +176,148 @@ public class AggroList
 	 * 
 	 * @param creature
 	 */
-	public void remove(Creature creature)
+	public synchronized void remove(Creature creature)
 	{
-		aggroList.remove(creature);
+		int slot = indexOf(creature);
+		if(slot < 0)
+			return;
+
+		int last = --size;
+		if(slot != last)
+		{
+			attackers[slot] = attackers[last];
+			objectIds[slot] = objectIds[last];
+			hate[slot] = hate[last];
+			damage[slot] = damage[last];
+		}
+		attackers[last] = null;
+
+		if(mostHatedSlot == slot)
+			findMostHated();
+		else if(mostHatedSlot == last)
+			mostHatedSlot = slot;
 	}
 	
 	/**
 	 * Clear aggroList
 	 */
-	public void clear()
+	public synchronized void clear()
+	{
+		Arrays.fill(attackers, 0, size, null);
+		size = 0;
+		mostHatedSlot = -1;
+	}
+	
+	/**
+	 * @param creature
+	 * @return damage dealt by given creature
+	 */
+	public synchronized int getDamage(Creature creature)
 	{
-		aggroList.clear();
+		int slot = indexOf(creature);
+		return slot < 0 ? 0 : damage[slot];
+	}
+	
+	/**
+	 * @param creature
+	 * @return hate of given creature
+	 */
+	public synchronized int getHate(Creature creature)
+	{
+		int slot = indexOf(creature);
+		return slot < 0 ? 0 : hate[slot];
+	}
+	
+	/**
+	 * @return number of creatures in aggro list
+	 */
+	public synchronized int size()
+	{
+		return size;
+	}
+	
+	/**
+	 * Set hate of slot and update most hated slot. Only lowering hate of most hated attacker needs scan of all slots.
+	 * 
+	 * @param slot
+	 * @param value
+	 */
+	private void setHate(int slot, int value)
+	{
+		int old = hate[slot];
+		hate[slot] = value;
+
+		if(slot == mostHatedSlot)
+		{
+			if(value < old)
+				findMostHated();
+		}
+		else if(value > 0 && (mostHatedSlot < 0 || value > hate[mostHatedSlot]))
+			mostHatedSlot = slot;
+	}
+	
+	/**
+	 * Find slot with the highest positive hate
+	 */
+	private void findMostHated()
+	{
+		int slot = -1;
+		int maxHate = 0;
+		for(int i = 0; i < size; i++)
+		{
+			if(hate[i] > maxHate)
+			{
+				slot = i;
+				maxHate = hate[i];
+			}
+		}
+		mostHatedSlot = slot;
 	}
 	
 	/**
 	 * 
 	 * @param creature
-	 * @return
+	 * @return slot of creature or -1
 	 */
-	private AggroInfo getAggroInfo(Creature creature)
+	private int indexOf(Creature creature)
 	{
-		AggroInfo ai = aggroList.get(creature);
-		if (ai == null)
+		if(creature == null)
+			return -1;
+
+		int objectId = creature.getObjectId();
+		for(int i = 0; i < size; i++)
+		{
+			if(objectIds[i] == objectId && attackers[i] == creature)
+				return i;
+		}
+		return -1;
+	}
+	
+	/**
+	 * 
+	 * @param creature
+	 * @return slot of creature, new one with zero hate and damage if creature wasn't in the list
+	 */
+	private int getOrCreateSlot(Creature creature)
+	{
+		int slot = indexOf(creature);
+		if(slot >= 0)
+			return slot;
+
+		if(size == attackers.length)
 		{
-			ai = new AggroInfo(creature);
-			aggroList.put(creature, ai);
+			int capacity = Math.max(4, size * 2);
+			attackers = Arrays.copyOf(attackers, capacity);
+			objectIds = Arrays.copyOf(objectIds, capacity);
+			hate = Arrays.copyOf(hate, capacity);
+			damage = Arrays.copyOf(damage, capacity);
 		}
-		return ai;
+		slot = size++;
+		attackers[slot] = creature;
+		objectIds[slot] = creature.getObjectId();
+		hate[slot] = 0;
+		damage[slot] = 0;
+		return slot;
 	}
 	
 	/**
@@ -208,9 +325,9 @@ public class AggroList
 	 * @param creature
 	 * @return
 	 */
-	private boolean isHating(Creature creature)
+	private synchronized boolean isHating(Creature creature)
 	{
-		return aggroList.containsKey(creature);
+		return indexOf(creature) >= 0;
 	}
 
 }
@@ -77,6 +77,9 @@ public class WorldMapTemplate
 	@XmlAttribute(name = "water_level", required = true)
 	private int	waterlevel	= 16;
 
+	@XmlAttribute(name = "cell_size")
+	private int	cellSize	= 0;
+
 	public String getName()
 	{
 		return name;
@@ -123,4 +126,12 @@ public class WorldMapTemplate
 	{
 		return deathlevel;
 	}
+
+	/**
+	 * @return size of map regions or 0 if default size should be used.
+	 */
+	public int getCellSize()
+	{
+		return cellSize;
+	}
 }
@@ -17,11 +17,14 @@
 package com.aionemu.gameserver.network;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import com.aionemu.commons.utils.Rnd;
 
 /**
- * Crypt will encrypt server packet and decrypt client packet.
+ * Crypt will encrypt server packet and decrypt client packet.<br>
+ * Every byte is xored with static key, rolling key and previous encrypted byte. Chaining by previous byte is a prefix
+ * xor, so it is computed for 8 bytes at once by shifting the long word, and both keys are kept as longs.
  * 
  * @author hack99
  * @author -Nemesiss-
@@ -42,13 +45,33 @@ public class Crypt
 	private static byte[]		staticKey				= "nKO/WctQ0AVLbpzfBkS6NevDYT8ourG5CRlmdjyJ72aswx4EPq1UgZhFMXH?3iI9"
 															.getBytes();
 	/**
-	 * Current xor key for client packet decoding.
+	 * Static xor key as little endian longs, one per 8 bytes of packet.
 	 */
-	private byte[]				clientPacketKey;
+	private static final long[]	staticKeyWords			= new long[staticKey.length / 8];
 	/**
-	 * Current xor key for server packet encoding.
+	 * Static key is not used for first byte of packet.
 	 */
-	private byte[]				serverPacketKey;
+	private static final long	firstWordMask			= ~0xffL;
+
+	static
+	{
+		ByteBuffer buf = ByteBuffer.wrap(staticKey).order(ByteOrder.LITTLE_ENDIAN);
+		for(int i = 0; i < staticKeyWords.length; i++)
+			staticKeyWords[i] = buf.getLong();
+	}
+
+	/**
+	 * Current xor key for client packet decoding [little endian].
+	 */
+	private long				clientPacketKey;
+	/**
+	 * Current xor key for server packet encoding [little endian].
+	 */
+	private long				serverPacketKey;
+	/**
+	 * True if key was already generated.
+	 */
+	private boolean				isKeySet;
 	/**
 	 * Crypt is enabled after first server packet was send.
 	 */
@@ -63,17 +86,16 @@ public class Crypt
 	 */
 	public final int enableKey()
 	{
-		if(clientPacketKey != null)
+		if(isKeySet)
 			throw new KeyAlreadySetException();
 
 		/** rnd key - this will be used to encrypt/decrypt packet */
 		int key = Rnd.nextInt();
 
-		clientPacketKey = new byte[] { (byte) (key & 0xff), (byte) ((key >> 8) & 0xff), (byte) ((key >> 16) & 0xff),
-			(byte) ((key >> 24) & 0xff), (byte) 0xa1, (byte) 0x6c, (byte) 0x54, (byte) 0x87 };
-
-		serverPacketKey = new byte[clientPacketKey.length];
-		System.arraycopy(clientPacketKey, 0, serverPacketKey, 0, clientPacketKey.length);
+		/** bytes: key [4 bytes], 0xa1, 0x6c, 0x54, 0x87 */
+		clientPacketKey = (key & 0xffffffffL) | 0x87546ca1L << 32;
+		serverPacketKey = clientPacketKey;
+		isKeySet = true;
 
 		/** false key that will be sent to aion client in SM_KEY packet */
 		return (key ^ 0xCD92E451) + 0x3FF2CC87;
@@ -90,44 +112,39 @@ public class Crypt
 		if(!isEnabled)
 			return false;
 
-		final byte[] data = buf.array();
 		final int size = buf.remaining();
-
-		/** index to byte that should be decrypted now */
-		int arrayIndex = buf.arrayOffset() + buf.position();
+		final int start = buf.position();
+		final long key = clientPacketKey;
+		final ByteOrder order = buf.order();
+		buf.order(ByteOrder.LITTLE_ENDIAN);
 
 		/** prev encrypted byte */
-		int prev = data[arrayIndex];
+		long prev = 0;
+		int i = 0;
+
+		/** decrypt loop, 8 bytes at once */
+		for(; i + 8 <= size; i += 8)
+		{
+			long mask = key ^ staticKeyWords[(i >> 3) & 7];
+			if(i == 0)
+				mask = key ^ (staticKeyWords[0] & firstWordMask);
 
-		/** decrypt first byte */
-		data[arrayIndex++] ^= (clientPacketKey[0] & 0xff);
+			long curr = buf.getLong(start + i);
+			buf.putLong(start + i, curr ^ mask ^ (curr << 8 | prev));
+			prev = curr >>> 56;
+		}
 
-		/** decrypt loop */
-		for(int i = 1; i < size; i++, arrayIndex++)
+		/** decrypt rest of bytes */
+		for(; i < size; i++)
 		{
-			int curr = data[arrayIndex] & 0xff;
-			data[arrayIndex] ^= (staticKey[i & 63] & 0xff) ^ (clientPacketKey[i & 7] & 0xff) ^ prev;
+			int curr = buf.get(start + i) & 0xff;
+			buf.put(start + i, (byte) (curr ^ byteMask(key, i) ^ prev));
 			prev = curr;
 		}
-
-		/** oldKey value as long */
-		long oldKey = (((long) clientPacketKey[0] & 0xff) << 0) | (((long) clientPacketKey[1] & 0xff) << 8)
-			| (((long) clientPacketKey[2] & 0xff) << 16) | (((long) clientPacketKey[3] & 0xff) << 24)
-			| (((long) clientPacketKey[4] & 0xff) << 32) | (((long) clientPacketKey[5] & 0xff) << 40)
-			| (((long) clientPacketKey[6] & 0xff) << 48) | (((long) clientPacketKey[7] & 0xff) << 56);
+		buf.order(order);
 
 		/** change key */
-		oldKey += size;
-
-		/** set key new value */
-		clientPacketKey[0] = (byte) (oldKey >> 0 & 0xff);
-		clientPacketKey[1] = (byte) (oldKey >> 8 & 0xff);
-		clientPacketKey[2] = (byte) (oldKey >> 16 & 0xff);
-		clientPacketKey[3] = (byte) (oldKey >> 24 & 0xff);
-		clientPacketKey[4] = (byte) (oldKey >> 32 & 0xff);
-		clientPacketKey[5] = (byte) (oldKey >> 40 & 0xff);
-		clientPacketKey[6] = (byte) (oldKey >> 48 & 0xff);
-		clientPacketKey[7] = (byte) (oldKey >> 56 & 0xff);
+		clientPacketKey = key + size;
 
 		return validateClientPacket(buf);
 	}
@@ -157,43 +174,59 @@ public class Crypt
 			return;
 		}
 
-		final byte[] data = buf.array();
 		final int size = buf.remaining();
-
-		/** index to byte that should be encrypted now */
-		int arrayIndex = buf.arrayOffset() + buf.position();
-
-		/** encrypt first byte */
-		data[arrayIndex] ^= (serverPacketKey[0] & 0xff);
+		final int start = buf.position();
+		final long key = serverPacketKey;
+		final ByteOrder order = buf.order();
+		buf.order(ByteOrder.LITTLE_ENDIAN);
 
 		/** prev encrypted byte */
-		int prev = data[arrayIndex++];
+		long prev = 0;
+		int i = 0;
 
-		/** encrypt loop */
-		for(int i = 1; i < size; i++, arrayIndex++)
+		/** encrypt loop, 8 bytes at once */
+		for(; i + 8 <= size; i += 8)
 		{
-			data[arrayIndex] ^= (staticKey[i & 63] & 0xff) ^ (serverPacketKey[i & 7] & 0xff) ^ prev;
-			prev = data[arrayIndex];
+			long mask = key ^ staticKeyWords[(i >> 3) & 7];
+			if(i == 0)
+				mask = key ^ (staticKeyWords[0] & firstWordMask);
+
+			/** every byte is xored with all previous bytes of the word and with last encrypted byte */
+			long word = buf.getLong(start + i) ^ mask;
+			word ^= word << 8;
+			word ^= word << 16;
+			word ^= word << 32;
+			word ^= prev * 0x0101010101010101L;
+
+			buf.putLong(start + i, word);
+			prev = word >>> 56;
 		}
 
-		/** oldKey value as long */
-		long oldKey = (((long) serverPacketKey[0] & 0xff) << 0) | (((long) serverPacketKey[1] & 0xff) << 8)
-			| (((long) serverPacketKey[2] & 0xff) << 16) | (((long) serverPacketKey[3] & 0xff) << 24)
-			| (((long) serverPacketKey[4] & 0xff) << 32) | (((long) serverPacketKey[5] & 0xff) << 40)
-			| (((long) serverPacketKey[6] & 0xff) << 48) | (((long) serverPacketKey[7] & 0xff) << 56);
+		/** encrypt rest of bytes */
+		for(; i < size; i++)
+		{
+			long curr = (buf.get(start + i) ^ byteMask(key, i) ^ prev) & 0xff;
+			buf.put(start + i, (byte) curr);
+			prev = curr;
+		}
+		buf.order(order);
 
 		/** change key */
-		oldKey += size;
-
-		/** set key new value */
-		serverPacketKey[0] = (byte) (oldKey >> 0 & 0xff);
-		serverPacketKey[1] = (byte) (oldKey >> 8 & 0xff);
-		serverPacketKey[2] = (byte) (oldKey >> 16 & 0xff);
-		serverPacketKey[3] = (byte) (oldKey >> 24 & 0xff);
-		serverPacketKey[4] = (byte) (oldKey >> 32 & 0xff);
-		serverPacketKey[5] = (byte) (oldKey >> 40 & 0xff);
-		serverPacketKey[6] = (byte) (oldKey >> 48 & 0xff);
-		serverPacketKey[7] = (byte) (oldKey >> 56 & 0xff);
+		serverPacketKey = key + size;
+	}
+
+	/**
+	 * @param key
+	 * @param i
+	 *            index of byte in packet.
+	 * @return xor mask for one byte of packet.
+	 */
+	private static int byteMask(long key, int i)
+	{
+		int mask = (int) (key >>> ((i & 7) << 3)) & 0xff;
+		if(i != 0)
+			mask ^= staticKey[i & 63] & 0xff;
+		return mask;
 	}
 
 	/**
@@ -17,10 +17,13 @@
 package com.aionemu.gameserver.network.aion;
 
 import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
 
 import org.apache.log4j.Logger;
 
 import com.aionemu.commons.network.packet.BaseClientPacket;
+import com.aionemu.gameserver.model.gameobjects.player.Player;
+import com.aionemu.gameserver.world.MapRegion;
 
 /**
  * Base class for every Aion -> LS Client Packet
@@ -34,6 +37,11 @@ public abstract class AionClientPacket extends BaseClientPacket<AionConnection>
 	 */
 	private static final Logger	log	= Logger.getLogger(AionClientPacket.class);
 
+	/**
+	 * Handler that created this packet, used for execution statistics. Set on prototype and copied by clone.
+	 */
+	private AionPacketHandler	handler;
+
 	/**
 	 * Constructs new client packet instance.
 	 * 
@@ -69,6 +77,7 @@ public abstract class AionClientPacket extends BaseClientPacket<AionConnection>
 	@Override
 	public final void run()
 	{
+		long start = System.nanoTime();
 		try
 		{
 			runImpl();
@@ -81,6 +90,33 @@ public abstract class AionClientPacket extends BaseClientPacket<AionConnection>
 
 			log.error("Error handling client (" + name + ") message :" + this, e);
 		}
+		if(handler != null)
+			handler.packetExecuted(getOpcode(), System.nanoTime() - start);
+	}
+
+	/**
+	 * Packets of player run on executor of map instance where the player is, if map executors are enabled.
+	 * 
+	 * @see com.aionemu.commons.network.packet.BaseClientPacket#getExecutor()
+	 */
+	@Override
+	public Executor getExecutor()
+	{
+		Player player = getConnection().getActivePlayer();
+		if(player == null)
+			return null;
+
+		MapRegion region = player.getActiveRegion();
+		return region != null ? region.getParent().getExecutor() : null;
+	}
+
+	/**
+	 * @param handler
+	 *            handler that creates this packet.
+	 */
+	final void setHandler(AionPacketHandler handler)
+	{
+		this.handler = handler;
 	}
 
 	/**
@@ -16,17 +16,23 @@
  */
 package com.aionemu.gameserver.network.aion;
 
+import gnu.trove.TLongObjectHashMap;
+
 import java.io.IOException;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayDeque;
 import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
 
 import com.aionemu.commons.network.AConnection;
 import com.aionemu.commons.network.Dispatcher;
 import com.aionemu.commons.network.PacketProcessor;
+import com.aionemu.gameserver.configs.network.NetworkConfig;
 import com.aionemu.gameserver.model.account.Account;
 import com.aionemu.gameserver.model.gameobjects.player.Player;
 import com.aionemu.gameserver.network.Crypt;
@@ -50,7 +56,28 @@ public class AionConnection extends AConnection
 	/**
 	 * PacketProcessor for executing packets.
 	 */
-	private final static PacketProcessor<AionConnection>	processor	= new PacketProcessor<AionConnection>(1, 8);
+	private final static PacketProcessor<AionConnection>	processor			= new PacketProcessor<AionConnection>(
+																					NetworkConfig.PACKET_PROCESSOR_MIN_THREADS,
+																					NetworkConfig.PACKET_PROCESSOR_MAX_THREADS);
+
+	/**
+	 * Packing of further packets to write buffer stops when less bytes than this are left.
+	 */
+	private static final int								MIN_PACKING_SPACE	= 256;
+
+	/**
+	 * Superseded packets are purged from send queue only when there are at least that many of them.
+	 */
+	private static final int								MIN_PURGED_PACKETS	= 64;
+
+	/**
+	 * Number of queued packets superseded by newer ones on all connections.
+	 */
+	private static final AtomicLong							totalCoalescedPackets	= new AtomicLong();
+	/**
+	 * Number of low priority packets dropped for backlogged connections.
+	 */
+	private static final AtomicLong							totalDroppedPackets		= new AtomicLong();
 
 	/**
 	 * Possible states of AionConnection
@@ -75,6 +102,31 @@ public class AionConnection extends AConnection
 	 * Server Packet "to send" Queue
 	 */
 	private final Deque<AionServerPacket>	sendMsgQueue	= new ArrayDeque<AionServerPacket>();
+	/**
+	 * Queued packets that can be superseded, by their coalesce key. Packet in send queue that isn't mapped by its key
+	 * was superseded and is skipped by writer.
+	 */
+	private final TLongObjectHashMap<AionServerPacket>	queuedStates	= new TLongObjectHashMap<AionServerPacket>();
+	/**
+	 * Number of superseded packets still occupying send queue.
+	 */
+	private int								supersededPackets;
+	/**
+	 * Rendered packet that didn't fit to write buffer, it's written before any packet from send queue.
+	 */
+	private ByteBuffer						deferredData;
+	/**
+	 * Number of queued packets superseded by newer ones on this connection.
+	 */
+	private int								coalescedPackets;
+	/**
+	 * Estimated size of packets waiting in send queue.
+	 */
+	private int								queuedSize;
+	/**
+	 * Number of low priority packets dropped because send queue was backlogged.
+	 */
+	private int								droppedPackets;
 	/**
 	 * Current state of this connection
 	 */
@@ -127,6 +179,14 @@ public class AionConnection extends AConnection
 		sendPacket(new SM_KEY());
 	}
 
+	/**
+	 * @return PacketProcessor executing client packets of all connections.
+	 */
+	public static PacketProcessor<AionConnection> getPacketProcessor()
+	{
+		return processor;
+	}
+
 	/**
 	 * Enable crypt key - generate random key that will be used to encrypt second server packet [first one is
 	 * unencrypted] and decrypt client packets. This method is called from SM_KEY server packet, that packet sends key
@@ -180,7 +240,8 @@ public class AionConnection extends AConnection
 	}
 
 	/**
-	 * This method will be called by Dispatcher, and will be repeated till return false.
+	 * This method will be called by Dispatcher, and will be repeated till return false. Packs as many queued packets as
+	 * fit to the buffer, so they are sent by one socket write.
 	 * 
 	 * @param data
 	 * @return True if data was written to buffer, False indicating that there are not any more data to write.
@@ -190,15 +251,107 @@ public class AionConnection extends AConnection
 	{
 		synchronized(guard)
 		{
-			AionServerPacket packet = sendMsgQueue.pollFirst();
-			if(packet == null)
-				return false;
+			ByteBuffer rendered = deferredData;
+			deferredData = null;
+			if(rendered == null)
+			{
+				AionServerPacket packet = pollServerPacket();
+				if(packet == null)
+					return false;
+				rendered = packet.render(this);
+			}
+
+			int count = 0;
+			while(rendered != null)
+			{
+				/** packet is rendered only once, one that doesn't fit is kept and written first next time */
+				if(rendered.remaining() + 2 > data.remaining())
+				{
+					if(count == 0)
+						throw new BufferOverflowException();
+					deferredData = ByteBuffer.allocate(rendered.remaining());
+					deferredData.put(rendered);
+					deferredData.flip();
+					break;
+				}
+				AionServerPacket.write(this, rendered, data);
+				count++;
+
+				if(data.remaining() < MIN_PACKING_SPACE)
+					break;
+				AionServerPacket packet = pollServerPacket();
+				rendered = packet != null ? packet.render(this) : null;
+			}
+			data.flip();
 
-			packet.write(this, data);
+			countWrittenPackets(count);
 			return true;
 		}
 	}
 
+	/**
+	 * Must be called under guard lock.
+	 * 
+	 * @return first packet from send queue or null.
+	 */
+	private AionServerPacket pollServerPacket()
+	{
+		AionServerPacket packet;
+		while((packet = sendMsgQueue.pollFirst()) != null && isSuperseded(packet))
+			supersededPackets--;
+		if(packet != null)
+		{
+			queuedSize -= packet.getEstimatedSize();
+			/** newer packet with the same key is queued as usual */
+			long key = packet.getCoalesceKey();
+			if(key != 0)
+				queuedStates.remove(key);
+		}
+		/** estimate of packet may grow when it's rendered for broadcast after it was queued */
+		if(sendMsgQueue.isEmpty())
+			queuedSize = 0;
+		return packet;
+	}
+
+	/**
+	 * Must be called under guard lock.
+	 * 
+	 * @param packet
+	 * @return true if packet was replaced by newer packet of the same state.
+	 */
+	private boolean isSuperseded(AionServerPacket packet)
+	{
+		long key = packet.getCoalesceKey();
+		return key != 0 && queuedStates.get(key) != packet;
+	}
+
+	/**
+	 * Must be called under guard lock.
+	 * 
+	 * @return number of packets waiting to be sent, without superseded ones.
+	 */
+	private int queuedPackets()
+	{
+		return sendMsgQueue.size() - supersededPackets;
+	}
+
+	/**
+	 * Remove superseded packets from send queue once they take more space than live ones. Must be called under guard
+	 * lock.
+	 */
+	private void purgeSuperseded()
+	{
+		if(supersededPackets < MIN_PURGED_PACKETS || supersededPackets < queuedPackets())
+			return;
+
+		for(Iterator<AionServerPacket> it = sendMsgQueue.iterator(); it.hasNext();)
+		{
+			if(isSuperseded(it.next()))
+				it.remove();
+		}
+		supersededPackets = 0;
+	}
+
 	/**
 	 * This method is called by Dispatcher when connection is ready to be closed.
 	 * 
@@ -258,7 +411,9 @@ public class AionConnection extends AConnection
 	}
 
 	/**
-	 * Sends AionServerPacket to this client.
+	 * Sends AionServerPacket to this client. If packet of the same state is still waiting in send queue, it is left
+	 * there as superseded and skipped by writer, so only this newer one will be sent. When send queue is over half of its limits low priority packets
+	 * are dropped, and when it reaches the limits client is considered stalled and connection is closed.
 	 * 
 	 * @param bp
 	 *            AionServerPacket to be sent.
@@ -273,7 +428,46 @@ public class AionConnection extends AConnection
 			if(isWriteDisabled())
 				return;
 
+			long key = bp.getCoalesceKey();
+			AionServerPacket superseded = key != 0 ? queuedStates.get(key) : null;
+			if(superseded != null)
+			{
+				queuedSize -= superseded.getEstimatedSize();
+				supersededPackets++;
+				coalescedPackets++;
+				totalCoalescedPackets.incrementAndGet();
+				purgeSuperseded();
+			}
+			else if(queuedPackets() * 2 >= NetworkConfig.SEND_QUEUE_MAX_PACKETS
+				|| queuedSize * 2 >= NetworkConfig.SEND_QUEUE_MAX_SIZE)
+			{
+				if(bp.isDroppable())
+				{
+					droppedPackets++;
+					totalDroppedPackets.incrementAndGet();
+					return;
+				}
+				if(queuedPackets() >= NetworkConfig.SEND_QUEUE_MAX_PACKETS
+					|| queuedSize >= NetworkConfig.SEND_QUEUE_MAX_SIZE)
+				{
+					log.warn("Closing connection of " + lastPlayerName + " [" + getIP() + "]: client doesn't read, "
+						+ queuedPackets() + " packets [estimated " + queuedSize + " bytes] waiting to be sent");
+					sendMsgQueue.clear();
+					queuedStates.clear();
+					supersededPackets = 0;
+					deferredData = null;
+					queuedSize = 0;
+					close(true);
+					/** don't queue any more packets till dispatcher closes connection */
+					pendingClose = true;
+					return;
+				}
+			}
+
+			if(key != 0)
+				queuedStates.put(key, bp);
 			sendMsgQueue.addLast(bp);
+			queuedSize += bp.getEstimatedSize();
 			enableWriteInterest();
 		}
 	}
@@ -300,11 +494,75 @@ public class AionConnection extends AConnection
 			pendingClose = true;
 			isForcedClosing = forced;
 			sendMsgQueue.clear();
+			queuedStates.clear();
+			supersededPackets = 0;
+			deferredData = null;
 			sendMsgQueue.addLast(closePacket);
+			queuedSize = closePacket.getEstimatedSize();
 			enableWriteInterest();
 		}
 	}
 
+	/**
+	 * @return Number of queued packets superseded by newer ones on this connection.
+	 */
+	public int getCoalescedPackets()
+	{
+		synchronized(guard)
+		{
+			return coalescedPackets;
+		}
+	}
+
+	/**
+	 * @return Number of packets waiting to be sent to this client.
+	 */
+	public int getQueuedPackets()
+	{
+		synchronized(guard)
+		{
+			return queuedPackets();
+		}
+	}
+
+	/**
+	 * @return Estimated size of packets waiting to be sent to this client.
+	 */
+	public int getQueuedSize()
+	{
+		synchronized(guard)
+		{
+			return queuedSize;
+		}
+	}
+
+	/**
+	 * @return Number of low priority packets dropped because this client didn't keep up with reading.
+	 */
+	public int getDroppedPackets()
+	{
+		synchronized(guard)
+		{
+			return droppedPackets;
+		}
+	}
+
+	/**
+	 * @return Number of low priority packets dropped for backlogged connections.
+	 */
+	public static long getTotalDroppedPackets()
+	{
+		return totalDroppedPackets.get();
+	}
+
+	/**
+	 * @return Number of queued packets superseded by newer ones on all connections.
+	 */
+	public static long getTotalCoalescedPackets()
+	{
+		return totalCoalescedPackets.get();
+	}
+
 	/**
 	 * Current state of this connection
 	 * 
@@ -17,8 +17,11 @@
 package com.aionemu.gameserver.network.aion;
 
 import java.nio.ByteBuffer;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import org.apache.log4j.Logger;
 
@@ -35,9 +38,30 @@ public class AionPacketHandler
 	/**
 	 * logger for this class
 	 */
-	private static final Logger							log					= Logger.getLogger(AionPacketHandler.class);
+	private static final Logger			log				= Logger.getLogger(AionPacketHandler.class);
 
-	private Map<State, Map<Integer, AionClientPacket>>	packetsPrototypes	= new HashMap<State, Map<Integer, AionClientPacket>>();
+	/**
+	 * Number of possible opcodes.
+	 */
+	private static final int			OPCODES			= 256;
+
+	/**
+	 * Packet prototypes indexed by [State.ordinal()][opcode].
+	 */
+	private final AionClientPacket[][]	packetsPrototypes	= new AionClientPacket[State.values().length][OPCODES];
+
+	/**
+	 * Number of received packets per opcode.
+	 */
+	private final AtomicLongArray		packetCount		= new AtomicLongArray(OPCODES);
+	/**
+	 * Received bytes per opcode.
+	 */
+	private final AtomicLongArray		packetBytes		= new AtomicLongArray(OPCODES);
+	/**
+	 * Time spent in runImpl per opcode [in ns].
+	 */
+	private final AtomicLongArray		handlerTime		= new AtomicLongArray(OPCODES);
 
 	/**
 	 * Reads one packet from given ByteBuffer
@@ -59,27 +83,14 @@ public class AionPacketHandler
 
 	public void addPacketPrototype(AionClientPacket packetPrototype, State... states)
 	{
+		packetPrototype.setHandler(this);
 		for(State state : states)
-		{
-			Map<Integer, AionClientPacket> pm = packetsPrototypes.get(state);
-			if(pm == null)
-			{
-				pm = new HashMap<Integer, AionClientPacket>();
-				packetsPrototypes.put(state, pm);
-			}
-			pm.put(packetPrototype.getOpcode(), packetPrototype);
-		}
+			packetsPrototypes[state.ordinal()][packetPrototype.getOpcode() & 0xff] = packetPrototype;
 	}
 
 	private AionClientPacket getPacket(State state, int id, ByteBuffer buf, AionConnection con)
 	{
-		AionClientPacket prototype = null;
-
-		Map<Integer, AionClientPacket> pm = packetsPrototypes.get(state);
-		if(pm != null)
-		{
-			prototype = pm.get(id);
-		}
+		AionClientPacket prototype = packetsPrototypes[state.ordinal()][id];
 
 		if(prototype == null)
 		{
@@ -87,6 +98,9 @@ public class AionPacketHandler
 			return null;
 		}
 
+		packetCount.incrementAndGet(id);
+		packetBytes.addAndGet(id, buf.limit());
+
 		AionClientPacket res = prototype.clonePacket();
 		res.setBuffer(buf);
 		res.setConnection(con);
@@ -94,6 +108,70 @@ public class AionPacketHandler
 		return res;
 	}
 
+	/**
+	 * Called by packet after it was executed.
+	 * 
+	 * @param opcode
+	 * @param nanos
+	 *            time spent in runImpl.
+	 */
+	void packetExecuted(int opcode, long nanos)
+	{
+		handlerTime.addAndGet(opcode & 0xff, nanos);
+	}
+
+	/**
+	 * Returns statistics of received packets sorted by time spent in handlers, one line per opcode in form: opcode
+	 * name count bytes total ms avg us.
+	 * 
+	 * @param limit
+	 *            max number of lines.
+	 * @return statistics lines.
+	 */
+	public List<String> getPacketStats(int limit)
+	{
+		List<Integer> opcodes = new ArrayList<Integer>();
+		for(int i = 0; i < OPCODES; i++)
+		{
+			if(packetCount.get(i) > 0)
+				opcodes.add(i);
+		}
+
+		Collections.sort(opcodes, new Comparator<Integer>(){
+			@Override
+			public int compare(Integer o1, Integer o2)
+			{
+				long t1 = handlerTime.get(o1);
+				long t2 = handlerTime.get(o2);
+				return t1 > t2 ? -1 : t1 == t2 ? 0 : 1;
+			}
+		});
+
+		List<String> stats = new ArrayList<String>();
+		for(int opcode : opcodes.subList(0, Math.min(limit, opcodes.size())))
+		{
+			long count = packetCount.get(opcode);
+			long time = handlerTime.get(opcode);
+			stats.add(String.format("0x%02X %s count: %d bytes: %d total: %d ms avg: %d us", opcode,
+				getPacketName(opcode), count, packetBytes.get(opcode), time / 1000000, time / count / 1000));
+		}
+		return stats;
+	}
+
+	/**
+	 * @param opcode
+	 * @return name of packet registered for given opcode in any state.
+	 */
+	private String getPacketName(int opcode)
+	{
+		for(AionClientPacket[] prototypes : packetsPrototypes)
+		{
+			if(prototypes[opcode] != null)
+				return prototypes[opcode].getPacketName();
+		}
+		return "UNKNOWN";
+	}
+
 	/**
 	 * Logs unknown packet.
 	 * 
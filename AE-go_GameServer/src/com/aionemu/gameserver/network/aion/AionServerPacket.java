@@ -17,6 +17,7 @@
 package com.aionemu.gameserver.network.aion;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import com.aionemu.commons.network.packet.BaseServerPacket;
 import com.aionemu.gameserver.network.Crypt;
@@ -28,6 +29,32 @@ import com.aionemu.gameserver.network.Crypt;
  */
 public abstract class AionServerPacket extends BaseServerPacket
 {
+	/**
+	 * Scratch buffer used for rendering packets, one per rendering thread.
+	 */
+	private static final ThreadLocal<ByteBuffer>	renderBuffer	= new ThreadLocal<ByteBuffer>(){
+		@Override
+		protected ByteBuffer initialValue()
+		{
+			return ByteBuffer.allocate(8192 * 2).order(ByteOrder.LITTLE_ENDIAN);
+		}
+	};
+
+	/**
+	 * Assumed size of packets that weren't rendered yet, used for estimating backlog of send queues.
+	 */
+	private static final int						ESTIMATED_PACKET_SIZE	= 64;
+
+	/**
+	 * Opcode header and body of this packet rendered once for all receivers, null if packet is written per connection.
+	 */
+	private volatile byte[]							broadcastData;
+
+	/**
+	 * True if this packet is a periodic position update, next update will correct any update that was dropped.
+	 */
+	private volatile boolean						positionUpdate;
+
 	/**
 	 * Constructs new server packet
 	 */
@@ -57,25 +84,139 @@ public abstract class AionServerPacket extends BaseServerPacket
 	}
 
 	/**
-	 * Write and encrypt this packet data for given connection, to given buffer.
+	 * Render opcode header and body of this packet for given connection, without length and encryption. Packet rendered
+	 * for broadcast is only wrapped, otherwise {@link #writeImpl(AionConnection, ByteBuffer)} is called.
 	 * 
 	 * @param con
-	 * @param buf
+	 * @return rendered data, valid until current thread renders next packet.
 	 */
-	public final void write(AionConnection con, ByteBuffer buf)
+	final ByteBuffer render(AionConnection con)
 	{
-		buf.putShort((short) 0);
+		byte[] data = broadcastData;
+		if(data != null)
+			return ByteBuffer.wrap(data);
+
+		ByteBuffer buf = renderBuffer.get();
+		buf.clear();
 		writeOP(buf, getOpcode());
 		writeImpl(con, buf);
 		buf.flip();
-		buf.putShort((short) buf.limit());
-		ByteBuffer b = buf.slice();
-		buf.position(0);
-		con.encrypt(b);
+		return buf;
+	}
+
+	/**
+	 * Write length and rendered data of packet to given buffer and encrypt it for given connection. Buffer must have
+	 * room for 2 more bytes than remaining rendered data.
+	 * 
+	 * @param con
+	 * @param data
+	 *            - rendered by {@link #render(AionConnection)}.
+	 * @param buf
+	 */
+	static void write(AionConnection con, ByteBuffer data, ByteBuffer buf)
+	{
+		int size = data.remaining();
+		buf.putShort((short) (size + 2));
+		ByteBuffer body = buf.slice();
+		body.limit(size);
+		buf.put(data);
+		con.encrypt(body);
+	}
+
+	/**
+	 * Render opcode header and body of this packet once, so every connection it is sent to will only copy and encrypt
+	 * it. Does nothing if packet content depends on the receiver. Should be called before packet is passed to any
+	 * connection.
+	 */
+	public final void prepareBroadcast()
+	{
+		if(broadcastData != null || !isReceiverIndependent())
+			return;
+
+		ByteBuffer buf = renderBuffer.get();
+		buf.clear();
+		writeOP(buf, getOpcode());
+		writeImpl(null, buf);
+		buf.flip();
+
+		byte[] data = new byte[buf.remaining()];
+		buf.get(data);
+		broadcastData = data;
+	}
+
+	/**
+	 * Packets that write the same data for every receiver [don't use connection in writeImpl] should return true, so
+	 * they can be serialized only once on broadcast.
+	 * 
+	 * @return true if writeImpl doesn't depend on connection it is written for.
+	 */
+	protected boolean isReceiverIndependent()
+	{
+		return false;
+	}
+
+	/**
+	 * Packets that only carry the latest state of some object [position, hp, effect icons] should return non zero key,
+	 * so a newer packet with the same key replaces older one that is still waiting in send queue of a connection.
+	 *
+	 * @return key of state carried by this packet or 0 if packet can't be superseded.
+	 */
+	protected long getCoalesceKey()
+	{
+		return 0;
+	}
+
+	/**
+	 * @param objectId
+	 * @return coalesce key made of opcode of this packet and id of object it describes.
+	 */
+	protected final long coalesceKey(int objectId)
+	{
+		return ((long) getOpcode() << 32) | (objectId & 0xffffffffL);
+	}
+
+	/**
+	 * Packets that are only cosmetic for the receiver [movement, attack animations] should return true, so they are
+	 * dropped instead of queued when receiver doesn't keep up with reading.
+	 *
+	 * @return true if this packet may be dropped for backlogged connection.
+	 */
+	protected boolean isDroppable()
+	{
+		return false;
+	}
+
+	/**
+	 * Mark this packet as periodic position update of moving creature.
+	 */
+	public final void markPositionUpdate()
+	{
+		positionUpdate = true;
+	}
+
+	/**
+	 * @return true if this packet is periodic position update of moving creature.
+	 */
+	protected final boolean isPositionUpdate()
+	{
+		return positionUpdate;
+	}
+
+	/**
+	 * Size of packet rendered per connection isn't known before it's written, so it counts as
+	 * {@link #ESTIMATED_PACKET_SIZE}. Send queue limits are therefore limits of estimated size, not of exact bytes.
+	 * 
+	 * @return size of this packet if it was already rendered for broadcast, otherwise rough estimate.
+	 */
+	final int getEstimatedSize()
+	{
+		byte[] data = broadcastData;
+		return data != null ? data.length + 2 : ESTIMATED_PACKET_SIZE;
 	}
 
 	/**
-	 * Write data that this packet represents to given byte buffer.
+	 * Write data that this packet represents to given byte buffer. Called once for every connection packet is sent to,
+	 * or once for all of them if packet was rendered for broadcast, so it may change state of packet or connection.
 	 * 
 	 * @param con
 	 * @param buf
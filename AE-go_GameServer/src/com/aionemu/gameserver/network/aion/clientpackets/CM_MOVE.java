@@ -160,9 +160,8 @@ public class CM_MOVE extends AionClientPacket
 				x2 = (float) (glideSpeed * Math.cos(angle));
 				y2 = (float) (glideSpeed * Math.sin(angle));
 
-				PacketSendUtility.broadcastPacket(player,
-						new SM_MOVE(player, x, y, z, x2, y2, z2, heading, glideFlag, MovementType.MOVEMENT_GLIDE_DOWN),
-						false);
+				PacketSendUtility.broadcastPositionUpdate(player,
+						new SM_MOVE(player, x, y, z, x2, y2, z2, heading, glideFlag, MovementType.MOVEMENT_GLIDE_DOWN));
 				break;
 			case VALIDATE_MOUSE:
 			case VALIDATE_KEYBOARD:
@@ -172,10 +171,9 @@ public class CM_MOVE extends AionClientPacket
 
 				MoveController mc = player.getMoveController();
 
-				PacketSendUtility.broadcastPacket(player, new SM_MOVE(player, x, y, z,
+				PacketSendUtility.broadcastPositionUpdate(player, new SM_MOVE(player, x, y, z,
 						mc.getTargetX(), mc.getTargetY(), mc.getTargetZ(), heading,
-						(type == MovementType.VALIDATE_MOUSE) ? MovementType.MOVEMENT_START_MOUSE : MovementType.MOVEMENT_START_KEYBOARD),
-						false);
+						(type == MovementType.VALIDATE_MOUSE) ? MovementType.MOVEMENT_START_MOUSE : MovementType.MOVEMENT_START_KEYBOARD));
 				break;
 			case MOVEMENT_STOP:
 				PacketSendUtility.broadcastPacket(player, new SM_MOVE(player, x, y, z, heading, type),
@@ -116,7 +116,7 @@ public class CM_SUMMON_MOVE extends AionClientPacket
 				break;
 			case VALIDATE_MOUSE:
 			case VALIDATE_KEYBOARD:
-				PacketSendUtility.broadcastPacket(summon, new SM_MOVE(summon, x, y, z, x2, y2, z2, heading,
+				PacketSendUtility.broadcastPositionUpdate(summon, new SM_MOVE(summon, x, y, z, x2, y2, z2, heading,
 					(type == MovementType.VALIDATE_MOUSE) ? MovementType.MOVEMENT_START_MOUSE
 						: MovementType.MOVEMENT_START_KEYBOARD));
 				break;
@@ -39,6 +39,18 @@ public class SM_ABNORMAL_EFFECT extends AionServerPacket
 		this.effectedId = effectedId;
 	}
 
+	@Override
+	protected boolean isReceiverIndependent()
+	{
+		return true;
+	}
+
+	@Override
+	protected long getCoalesceKey()
+	{
+		return coalesceKey(effectedId);
+	}
+
 	@Override
 	protected void writeImpl(AionConnection con, ByteBuffer buf)
 	{
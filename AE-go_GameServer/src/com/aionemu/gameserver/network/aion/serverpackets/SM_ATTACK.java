@@ -48,6 +48,24 @@ public class SM_ATTACK extends AionServerPacket
 		this.attackList = attackList;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean isReceiverIndependent()
+	{
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean isDroppable()
+	{
+		return true;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -75,6 +75,12 @@ public class SM_ATTACK_STATUS extends AionServerPacket
 	 * {@inheritDoc} ddchcc
 	 */
 	
+	@Override
+	protected boolean isReceiverIndependent()
+	{
+		return true;
+	}
+
 	@Override
 	protected void writeImpl(AionConnection con, ByteBuffer buf)
 	{		
@@ -56,6 +56,12 @@ public class SM_CASTSPELL_END extends AionServerPacket
 	 * {@inheritDoc}
 	 */
 
+	@Override
+	protected boolean isReceiverIndependent()
+	{
+		return true;
+	}
+
 	@Override
 	protected void writeImpl(AionConnection con, ByteBuffer buf)
 	{
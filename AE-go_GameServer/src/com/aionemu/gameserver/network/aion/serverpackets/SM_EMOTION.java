@@ -134,6 +134,15 @@ public class SM_EMOTION extends AionServerPacket
 		this.currentAttackSpeed = player.getGameStats().getCurrentStat(StatEnum.ATTACK_SPEED);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean isReceiverIndependent()
+	{
+		return true;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
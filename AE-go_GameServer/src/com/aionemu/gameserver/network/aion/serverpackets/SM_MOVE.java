@@ -99,6 +99,34 @@ public class SM_MOVE extends AionServerPacket
 		this.hasGlideFlag = true;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean isReceiverIndependent()
+	{
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected long getCoalesceKey()
+	{
+		return coalesceKey(movingCreature.getObjectId());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean isDroppable()
+	{
+		/** start, stop and direction change must reach observers, only periodic updates are corrected by next ones */
+		return isPositionUpdate();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
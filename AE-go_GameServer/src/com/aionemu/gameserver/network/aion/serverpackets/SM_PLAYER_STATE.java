@@ -50,6 +50,15 @@ public class SM_PLAYER_STATE extends AionServerPacket
 		this.seeState = player.getSeeState();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean isReceiverIndependent()
+	{
+		return true;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -41,6 +41,15 @@ public class SM_STATUPDATE_DP extends AionServerPacket
 		this.currentDp = currentDp;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected long getCoalesceKey()
+	{
+		return coalesceKey(0);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -44,6 +44,15 @@ public class SM_STATUPDATE_HP extends AionServerPacket
 		this.maxHp = maxHp;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected long getCoalesceKey()
+	{
+		return coalesceKey(0);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
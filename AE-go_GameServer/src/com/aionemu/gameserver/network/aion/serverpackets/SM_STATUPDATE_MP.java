@@ -44,6 +44,15 @@ public class SM_STATUPDATE_MP extends AionServerPacket
 		this.maxMp = maxMp;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected long getCoalesceKey()
+	{
+		return coalesceKey(0);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
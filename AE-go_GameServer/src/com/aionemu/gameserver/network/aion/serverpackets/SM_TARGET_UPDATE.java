@@ -34,6 +34,15 @@ public class SM_TARGET_UPDATE extends AionServerPacket
 		this.player = player;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected long getCoalesceKey()
+	{
+		return coalesceKey(player.getObjectId());
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -72,7 +72,7 @@ import com.aionemu.gameserver.network.aion.clientpackets.CM_QUIT;
 import com.aionemu.gameserver.utils.ThreadPoolManager;
 import com.aionemu.gameserver.utils.collections.cachemap.CacheMap;
 import com.aionemu.gameserver.utils.collections.cachemap.CacheMapFactory;
-import com.aionemu.gameserver.world.KnownList;
+import com.aionemu.gameserver.world.PlayerKnownList;
 import com.aionemu.gameserver.world.World;
 import com.aionemu.gameserver.world.WorldPosition;
 import com.google.inject.Inject;
@@ -217,7 +217,7 @@ public class PlayerService
 		player.setMacroList(macroses);
 
 		player.setSkillList(DAOManager.getDAO(PlayerSkillListDAO.class).loadSkillList(playerObjId));
-		player.setKnownlist(new KnownList(player));
+		player.setKnownlist(new PlayerKnownList(player));
 		player.setFriendList(DAOManager.getDAO(FriendListDAO.class).load(player, world, playerInitialData));
 		player.setBlockList(DAOManager.getDAO(BlockListDAO.class).load(player, world, playerInitialData));
 		player.setTitleList(DAOManager.getDAO(PlayerTitleListDAO.class).loadTitleList(playerObjId));
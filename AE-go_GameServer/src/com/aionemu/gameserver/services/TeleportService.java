@@ -48,6 +48,7 @@ import com.aionemu.gameserver.network.aion.serverpackets.SM_TELEPORT_MAP;
 import com.aionemu.gameserver.services.ZoneService.ZoneUpdateMode;
 import com.aionemu.gameserver.utils.PacketSendUtility;
 import com.aionemu.gameserver.utils.ThreadPoolManager;
+import com.aionemu.gameserver.world.MapTask;
 import com.aionemu.gameserver.world.World;
 import com.google.inject.Inject;
 
@@ -287,7 +288,7 @@ public class TeleportService
 		}
 
 		PacketSendUtility.sendPacket(player, new SM_ITEM_USAGE_ANIMATION(player.getObjectId(), 0, 0, delay, 0, 0));
-		ThreadPoolManager.getInstance().schedule(new Runnable(){
+		ThreadPoolManager.getInstance().schedule(new MapTask(player, new Runnable(){
 			@Override
 			public void run()
 			{
@@ -297,7 +298,7 @@ public class TeleportService
 				PacketSendUtility.sendPacket(player, new SM_ITEM_USAGE_ANIMATION(0, 0, 0, 0, 1, 0));
 				changePosition(player, worldId, instanceId, x, y, z, heading);
 			}
-		}, delay);
+		}), delay);
 
 		return true;
 	}
@@ -311,7 +312,7 @@ public class TeleportService
 	 * @param z
 	 * @param heading
 	 */
-	private void changePosition(Player player, int worldId, int instanceId, float x, float y, float z, byte heading)
+	private void changePosition(final Player player, int worldId, int instanceId, float x, float y, float z, byte heading)
 	{
 		player.getFlyController().endFly();
 				
@@ -327,9 +328,16 @@ public class TeleportService
 		{
 			PacketSendUtility.sendPacket(player, new SM_STATS_INFO(player));
 			PacketSendUtility.sendPacket(player, new SM_PLAYER_INFO(player, false));
-			world.spawn(player);
-			player.getEffectController().updatePlayerEffectIcons();
-			player.getController().addZoneUpdateMask(ZoneUpdateMode.ZONE_REFRESH);
+			/** hand off spawn to executor of destination, it may be another instance of this map */
+			new MapTask(player, new Runnable(){
+				@Override
+				public void run()
+				{
+					world.spawn(player);
+					player.getEffectController().updatePlayerEffectIcons();
+					player.getController().addZoneUpdateMask(ZoneUpdateMode.ZONE_REFRESH);
+				}
+			}).run();
 		}
 		/**
 		 * teleport with full map reloading
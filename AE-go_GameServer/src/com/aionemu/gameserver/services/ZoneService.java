@@ -32,6 +32,7 @@ import com.aionemu.gameserver.taskmanager.AbstractFIFOPeriodicTaskManager;
 import com.aionemu.gameserver.utils.ThreadPoolManager;
 import com.aionemu.gameserver.world.MapRegion;
 import com.aionemu.gameserver.world.WorldPosition;
+import com.aionemu.gameserver.world.zone.ZoneIndex;
 import com.aionemu.gameserver.world.zone.ZoneInstance;
 import com.aionemu.gameserver.world.zone.ZoneName;
 import com.google.inject.Inject;
@@ -44,11 +45,17 @@ public final class ZoneService extends AbstractFIFOPeriodicTaskManager<Player>
 {
 	private Map<ZoneName, ZoneInstance> zoneMap = new HashMap<ZoneName, ZoneInstance>();
 	private Map<Integer, Collection<ZoneInstance>> zoneByMapIdMap = new HashMap<Integer, Collection<ZoneInstance>>();
+	private Map<Integer, ZoneIndex> zoneIndexByMapIdMap = new HashMap<Integer, ZoneIndex>();
 	
 	private ZoneData zoneData;
 	
 	private static final long DROWN_PERIOD = 2000;
 	
+	/**
+	 *  Size of cells of zone index, zone polygons are a few hundred meters wide
+	 */
+	public static final int ZONE_INDEX_CELL_SIZE = 64;
+	
 	@Inject
 	public ZoneService(ZoneData zoneData)
 	{
@@ -125,6 +132,7 @@ public final class ZoneService extends AbstractFIFOPeriodicTaskManager<Player>
 	/**
 	 *  Initializes zone instances using zone templates from xml
 	 *  Adds neighbors to each zone instance using lookup by ZoneName
+	 *  Builds zone index for each map
 	 */
 	public void initializeZones()
 	{
@@ -155,6 +163,11 @@ public final class ZoneService extends AbstractFIFOPeriodicTaskManager<Player>
 			}
 			zoneInstance.setNeighbors(neighbors);
 		}
+
+		for(Map.Entry<Integer, Collection<ZoneInstance>> entry : zoneByMapIdMap.entrySet())
+		{
+			zoneIndexByMapIdMap.put(entry.getKey(), new ZoneIndex(entry.getValue(), ZONE_INDEX_CELL_SIZE));
+		}
 	}
 
 	/**
@@ -215,21 +228,19 @@ public final class ZoneService extends AbstractFIFOPeriodicTaskManager<Player>
 		if(mapRegion == null)
 			return;
 		
-		Collection<ZoneInstance> zones = zoneByMapIdMap.get(mapRegion.getMapId());
-		if(zones == null)
+		ZoneIndex zoneIndex = zoneIndexByMapIdMap.get(mapRegion.getMapId());
+		if(zoneIndex == null)
 		{
 			player.getController().resetZone();
 			return;
 		}			
 		
-		for(ZoneInstance zone : zones)
+		WorldPosition position = player.getPosition();
+		ZoneInstance zone = zoneIndex.findZone(position.getX(), position.getY(), position.getZ());
+		if(zone != null)
 		{
-			if(checkPointInZone(zone, player.getPosition()))
-			{
-				player.setZoneInstance(zone);
-				player.getController().onEnterZone(zone);
-				return;
-			}
+			player.setZoneInstance(zone);
+			player.getController().onEnterZone(zone);
 		}
 	}
 	
@@ -250,7 +261,7 @@ public final class ZoneService extends AbstractFIFOPeriodicTaskManager<Player>
 	}
 
 	/**
-	 *  Main algorithm that analyzes point-in-polygon
+	 *  Point-in-polygon test, zones whose bounding box doesn't contain position are rejected first
 	 *  
 	 * @param zone
 	 * @param position
@@ -258,40 +269,7 @@ public final class ZoneService extends AbstractFIFOPeriodicTaskManager<Player>
 	 */
 	private boolean checkPointInZone(ZoneInstance zone, WorldPosition position)
 	{
-		int corners = zone.getCorners();
-		float[] xCoords = zone.getxCoordinates();
-		float[] yCoords = zone.getyCoordinates();
-		
-		float top = zone.getTop();
-		float bottom = zone.getBottom();
-		
-		float x = position.getX();
-		float y = position.getY();
-		float z = position.getZ();
-		
-		//first z coordinate is checked
-		if(top != 0 || bottom != 0)//not defined
-		{
-			if(z > top || z < bottom)
-				return false;
-		}
-		
-		int i, j = corners-1;
-		boolean  inside = false;
-
-		for (i=0; i<corners; i++) 
-		{
-			if (yCoords[i] < y && yCoords[j] >= y || yCoords[j] < y && yCoords[i] >= y) 
-			{
-				if (xCoords[i]+(y-yCoords[i])/(yCoords[j]-yCoords[i])*(xCoords[j]-xCoords[i])<x) 
-				{
-					inside = !inside; 
-				}
-			}
-			j=i; 
-		}
-
-		return inside;
+		return zone.isInside(position.getX(), position.getY(), position.getZ());
 	}
 
 	/**
@@ -32,6 +32,7 @@ import com.aionemu.gameserver.skillengine.model.SkillTemplate;
 import com.aionemu.gameserver.utils.MathUtil;
 import com.aionemu.gameserver.utils.PacketSendUtility;
 import com.aionemu.gameserver.utils.ThreadPoolManager;
+import com.aionemu.gameserver.world.MapTask;
 
 /**
  * @author ATracer
@@ -94,14 +95,14 @@ public class AuraEffect extends EffectTemplate
 	@Override
 	public void startEffect(final Effect effect)
 	{
-		Future<?> task = ThreadPoolManager.getInstance().scheduleEffectAtFixedRate(new Runnable(){
+		Future<?> task = ThreadPoolManager.getInstance().scheduleEffectAtFixedRate(new MapTask(effect.getEffected(), new Runnable(){
 
 			@Override
 			public void run()
 			{
 				onPeriodicAction(effect);
 			}
-		}, 0, 6500);
+		}), 0, 6500);
 		effect.setPeriodicTask(task, position);
 	}
 
@@ -28,6 +28,7 @@ import com.aionemu.gameserver.network.aion.serverpackets.SM_ATTACK_STATUS.TYPE;
 import com.aionemu.gameserver.skillengine.model.Effect;
 import com.aionemu.gameserver.utils.ThreadPoolManager;
 import com.aionemu.gameserver.utils.stats.StatFunctions;
+import com.aionemu.gameserver.world.MapTask;
 
 /**
  * @author ATracer
@@ -82,14 +83,14 @@ public class BleedEffect extends EffectTemplate
 
 		effected.getEffectController().setAbnormal(EffectId.BLEED.getEffectId());
 		
-		Future<?> task = ThreadPoolManager.getInstance().scheduleEffectAtFixedRate(new Runnable(){
+		Future<?> task = ThreadPoolManager.getInstance().scheduleEffectAtFixedRate(new MapTask(effect.getEffected(), new Runnable(){
 
 			@Override
 			public void run()
 			{
 				onPeriodicAction(effect);
 			}
-		}, checktime, checktime);
+		}), checktime, checktime);
 		effect.setPeriodicTask(task, position);	
 	}
 
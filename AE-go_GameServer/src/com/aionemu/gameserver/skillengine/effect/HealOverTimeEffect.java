@@ -27,6 +27,7 @@ import com.aionemu.gameserver.model.gameobjects.Creature;
 import com.aionemu.gameserver.skillengine.model.Effect;
 import com.aionemu.gameserver.skillengine.model.HealType;
 import com.aionemu.gameserver.utils.ThreadPoolManager;
+import com.aionemu.gameserver.world.MapTask;
 
 /**
  * @author ATracer
@@ -75,14 +76,14 @@ public class HealOverTimeEffect extends EffectTemplate
 	@Override
 	public void startEffect(final Effect effect)
 	{
-		Future<?> task = ThreadPoolManager.getInstance().scheduleEffectAtFixedRate(new Runnable(){
+		Future<?> task = ThreadPoolManager.getInstance().scheduleEffectAtFixedRate(new MapTask(effect.getEffected(), new Runnable(){
 
 			@Override
 			public void run()
 			{
 				onPeriodicAction(effect);
 			}
-		}, checktime, checktime);
+		}), checktime, checktime);
 		effect.setPeriodicTask(task, position);	
 	}
 }
@@ -27,6 +27,7 @@ import com.aionemu.gameserver.model.gameobjects.Creature;
 import com.aionemu.gameserver.model.gameobjects.stats.StatEnum;
 import com.aionemu.gameserver.skillengine.model.Effect;
 import com.aionemu.gameserver.utils.ThreadPoolManager;
+import com.aionemu.gameserver.world.MapTask;
 
 /**
  * @author ATracer
@@ -48,14 +49,14 @@ public class MpUseOverTimeEffect extends EffectTemplate
 		int maxMp = effected.getGameStats().getCurrentStat(StatEnum.MAXMP);
 		final int requiredMp = maxMp * value / 100;
 
-		Future<?> task = ThreadPoolManager.getInstance().scheduleEffectAtFixedRate(new Runnable(){
+		Future<?> task = ThreadPoolManager.getInstance().scheduleEffectAtFixedRate(new MapTask(effect.getEffected(), new Runnable(){
 
 			@Override
 			public void run()
 			{
 				onPeriodicAction(effect, requiredMp);
 			}
-		}, 0, checktime);
+		}), 0, checktime);
 		effect.setMpUseTask(task);
 	}
 
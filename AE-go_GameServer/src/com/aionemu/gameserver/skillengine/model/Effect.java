@@ -30,6 +30,7 @@ import com.aionemu.gameserver.skillengine.effect.EffectTemplate;
 import com.aionemu.gameserver.skillengine.effect.Effects;
 import com.aionemu.gameserver.utils.PacketSendUtility;
 import com.aionemu.gameserver.utils.ThreadPoolManager;
+import com.aionemu.gameserver.world.MapTask;
 
 /**
  * @author ATracer
@@ -542,7 +543,7 @@ public class Effect
 		
 		endTime = (int) System.currentTimeMillis() + duration;
 
-		task = ThreadPoolManager.getInstance().scheduleEffect((new Runnable()
+		task = ThreadPoolManager.getInstance().scheduleEffect(new MapTask(effected, new Runnable()
 		{
 			@Override
 			public void run()
@@ -80,6 +80,8 @@ extends Property
 					return false;
 				}
 			
+				float targetX = firstTarget.getX();
+				float targetY = firstTarget.getY();
 				Iterator<VisibleObject> iterator = firstTarget.getKnownList().iterator();
 				while(iterator.hasNext() && counter < maxcount)
 				{
@@ -94,7 +96,7 @@ extends Property
 						continue;
 					
 					if(nextCreature instanceof Creature 
-						&& MathUtil.isInRange(firstTarget, nextCreature, distance))
+						&& MathUtil.isInRange(targetX, targetY, nextCreature.getX(), nextCreature.getY(), distance))
 					{
 						effectedList.add((Creature) nextCreature);
 						counter++;
@@ -0,0 +1,353 @@
+/*
+ * This file is part of aion-emu <aion-emu.com>.
+ *
+ *  aion-emu is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-emu is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-emu.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.taskmanager.tasks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import com.aionemu.commons.utils.concurrent.AionRejectedExecutionHandler;
+import com.aionemu.gameserver.configs.main.ThreadConfig;
+import com.aionemu.gameserver.utils.ThreadPoolManager;
+
+/**
+ * Runs ai tasks once per {@link #AI_PERIOD}. Instead of one scheduled future per ai, tasks are kept in arrays
+ * (shards) and swept by worker threads. The period is split into {@link #SLOTS} sub slots, each task belongs to one
+ * slot and one of its shards, so every tick sweeps only a part of all tasks and shards of that part are swept in
+ * parallel. Adding and removing a task is O(1), removed task is replaced by the last one of its shard.
+ * 
+ * @author ATracer
+ */
+public final class AITaskManager
+{
+	private static final Logger	log			= Logger.getLogger(AITaskManager.class);
+
+	/**
+	 * Period of every ai task
+	 */
+	public static final int		AI_PERIOD	= 1000;
+
+	/**
+	 * Number of ticks per ai period
+	 */
+	public static final int		SLOTS		= 10;
+
+	private static final class SingletonHolder
+	{
+		private static final AITaskManager	INSTANCE	= createInstance();
+	}
+
+	public static AITaskManager getInstance()
+	{
+		return SingletonHolder.INSTANCE;
+	}
+
+	private static AITaskManager createInstance()
+	{
+		int threads = Math.max(1, ThreadConfig.AI_THREADS);
+		ThreadPoolExecutor workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<Runnable>());
+		workers.setRejectedExecutionHandler(new AionRejectedExecutionHandler());
+		workers.prestartAllCoreThreads();
+
+		final AITaskManager manager = new AITaskManager(workers, threads);
+		ThreadPoolManager.getInstance().scheduleAtFixedRate(new Runnable(){
+			@Override
+			public void run()
+			{
+				manager.tick();
+			}
+		}, AI_PERIOD / SLOTS, AI_PERIOD / SLOTS);
+
+		log.info("AITaskManager: Initialized with " + threads + " thread(s).");
+		return manager;
+	}
+
+	private final Executor		workers;
+
+	/**
+	 * Shards of each slot
+	 */
+	private final Shard[][]		shards;
+
+	/**
+	 * Slot swept by next tick, accessed only by thread calling {@link #tick()}
+	 */
+	private int					nextSlot;
+
+	private final AtomicInteger	taskCount		= new AtomicInteger();
+	private final AtomicLong	ticks			= new AtomicLong();
+	private final AtomicLong	sweepTime		= new AtomicLong();
+	private final AtomicLong	maxSweepTime	= new AtomicLong();
+	private final AtomicLong	skippedSweeps	= new AtomicLong();
+
+	/**
+	 * @param workers
+	 *            - executor running sweeps of shards.
+	 * @param shardsPerSlot
+	 *            - number of shards each slot is split into, usually number of worker threads.
+	 */
+	AITaskManager(Executor workers, int shardsPerSlot)
+	{
+		this.workers = workers;
+		this.shards = new Shard[SLOTS][shardsPerSlot];
+		for(Shard[] slot : shards)
+		{
+			for(int i = 0; i < shardsPerSlot; i++)
+				slot[i] = new Shard();
+		}
+	}
+
+	/**
+	 * Start running given task every {@link #AI_PERIOD} milliseconds, first time within one period.
+	 * 
+	 * @param task
+	 * @return handle used for removing the task.
+	 */
+	public AITask add(Runnable task)
+	{
+		AITask aiTask = new AITask(task);
+		leastLoadedShard().add(aiTask);
+		taskCount.incrementAndGet();
+		return aiTask;
+	}
+
+	/**
+	 * Stop running given task. If it is being swept right now, it may still finish its current run.
+	 * 
+	 * @param aiTask
+	 */
+	public void remove(AITask aiTask)
+	{
+		aiTask.active = false;
+		Shard shard = aiTask.shard;
+		if(shard != null && shard.remove(aiTask))
+			taskCount.decrementAndGet();
+	}
+
+	/**
+	 * Size of shards is read without lock, so the choice is only approximate.
+	 */
+	private Shard leastLoadedShard()
+	{
+		Shard result = null;
+		for(Shard[] slot : shards)
+		{
+			for(Shard shard : slot)
+			{
+				if(result == null || shard.size < result.size)
+					result = shard;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Sweep shards of next slot. Shard whose previous sweep didn't finish yet is skipped.
+	 */
+	void tick()
+	{
+		Shard[] slot = shards[nextSlot];
+		nextSlot = (nextSlot + 1) % SLOTS;
+		ticks.incrementAndGet();
+
+		for(Shard shard : slot)
+		{
+			if(shard.sweeping.compareAndSet(false, true))
+				workers.execute(shard);
+			else
+				skippedSweeps.incrementAndGet();
+		}
+	}
+
+	/**
+	 * @return number of scheduled ai tasks.
+	 */
+	public int getTaskCount()
+	{
+		return taskCount.get();
+	}
+
+	/**
+	 * @return average time spent by all worker threads in one tick, in nanoseconds.
+	 */
+	public long getAverageTickCost()
+	{
+		long count = ticks.get();
+		return count == 0 ? 0 : sweepTime.get() / count;
+	}
+
+	/**
+	 * @return longest sweep of one shard, in nanoseconds.
+	 */
+	public long getMaxSweepTime()
+	{
+		return maxSweepTime.get();
+	}
+
+	/**
+	 * @return number of sweeps skipped because previous sweep of the same shard was still running.
+	 */
+	public long getSkippedSweeps()
+	{
+		return skippedSweeps.get();
+	}
+
+	public List<String> getStats()
+	{
+		List<String> list = new ArrayList<String>();
+		list.add("AI tasks: " + getTaskCount());
+		list.add("Ticks: " + ticks.get());
+		list.add("Avg tick cost: " + getAverageTickCost() / 1000 + " us");
+		list.add("Max shard sweep: " + getMaxSweepTime() / 1000 + " us");
+		list.add("Skipped sweeps: " + getSkippedSweeps());
+		for(int i = 0; i < SLOTS; i++)
+		{
+			StringBuilder sb = new StringBuilder("Slot ").append(i).append(':');
+			for(Shard shard : shards[i])
+				sb.append(' ').append(shard.size);
+			list.add(sb.toString());
+		}
+		return list;
+	}
+
+	/**
+	 * Handle of task added to {@link AITaskManager}
+	 */
+	public static final class AITask
+	{
+		private final Runnable			task;
+		private volatile boolean		active	= true;
+
+		/**
+		 * Shard holding this task and index in it, guarded by the shard
+		 */
+		private volatile Shard			shard;
+		private int						index;
+
+		private AITask(Runnable task)
+		{
+			this.task = task;
+		}
+
+		/**
+		 * @return true if task wasn't removed yet.
+		 */
+		public boolean isActive()
+		{
+			return active;
+		}
+	}
+
+	/**
+	 * Part of one slot, swept by one worker thread at a time.
+	 */
+	private final class Shard implements Runnable
+	{
+		private AITask[]			tasks		= new AITask[16];
+		private volatile int		size;
+
+		/**
+		 * Copy of tasks taken at start of sweep, so tasks can be added and removed while they run
+		 */
+		private AITask[]			sweepTasks	= new AITask[16];
+		private final AtomicBoolean	sweeping	= new AtomicBoolean();
+
+		private synchronized void add(AITask aiTask)
+		{
+			if(size == tasks.length)
+			{
+				AITask[] newTasks = new AITask[tasks.length * 2];
+				System.arraycopy(tasks, 0, newTasks, 0, size);
+				tasks = newTasks;
+			}
+			aiTask.index = size;
+			aiTask.shard = this;
+			tasks[size] = aiTask;
+			size++;
+		}
+
+		private synchronized boolean remove(AITask aiTask)
+		{
+			if(aiTask.shard != this)
+				return false;
+
+			int last = size - 1;
+			AITask moved = tasks[last];
+			tasks[aiTask.index] = moved;
+			moved.index = aiTask.index;
+			tasks[last] = null;
+			size = last;
+
+			aiTask.shard = null;
+			return true;
+		}
+
+		@Override
+		public void run()
+		{
+			long start = System.nanoTime();
+			try
+			{
+				int count;
+				synchronized(this)
+				{
+					count = size;
+					if(sweepTasks.length < count)
+						sweepTasks = new AITask[tasks.length];
+					System.arraycopy(tasks, 0, sweepTasks, 0, count);
+				}
+
+				for(int i = 0; i < count; i++)
+				{
+					AITask aiTask = sweepTasks[i];
+					sweepTasks[i] = null;
+					if(!aiTask.active)
+						continue;
+
+					try
+					{
+						aiTask.task.run();
+					}
+					catch(Throwable t)
+					{
+						log.error("Exception in ai task " + aiTask.task, t);
+					}
+				}
+			}
+			finally
+			{
+				long time = System.nanoTime() - start;
+				sweepTime.addAndGet(time);
+				for(long max; time > (max = maxSweepTime.get());)
+				{
+					if(maxSweepTime.compareAndSet(max, time))
+						break;
+				}
+				sweeping.set(false);
+			}
+		}
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * This file is part of aion-unique <aion-unique.org>.
+ *
+ *  aion-unique is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-unique is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-unique.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.taskmanager.tasks;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.aionemu.gameserver.configs.main.TaskManagerConfig;
+import com.aionemu.gameserver.taskmanager.AbstractPeriodicTaskManager;
+import com.aionemu.gameserver.utils.ThreadPoolManager;
+import com.aionemu.gameserver.world.WorldMapInstance;
+
+/**
+ * Updates known lists of moved objects once per interval. Map instances are processed in parallel, objects of one
+ * instance by one thread.<br>
+ * Instances are kept in a plain queue and taken out of it before their update is submitted. Instance clears its
+ * scheduled flag when the update starts, so an object that moves meanwhile queues the instance again and is never
+ * missed.
+ * 
+ * @author ATracer
+ */
+public final class KnownListUpdater extends AbstractPeriodicTaskManager
+{
+	private static final class SingletonHolder
+	{
+		private static final KnownListUpdater	INSTANCE	= new KnownListUpdater();
+	}
+
+	public static KnownListUpdater getInstance()
+	{
+		return SingletonHolder.INSTANCE;
+	}
+
+	private final Queue<WorldMapInstance>	instances	= new ConcurrentLinkedQueue<WorldMapInstance>();
+
+	private KnownListUpdater()
+	{
+		super(TaskManagerConfig.KNOWNLIST_UPDATE_INTERVAL);
+	}
+
+	/**
+	 * Queue instance that has moved objects, instance must not be queued again until its update started.
+	 * 
+	 * @param instance
+	 */
+	public void add(WorldMapInstance instance)
+	{
+		instances.offer(instance);
+	}
+
+	@Override
+	public void run()
+	{
+		for(WorldMapInstance instance; (instance = instances.poll()) != null;)
+			submit(instance);
+	}
+
+	private void submit(final WorldMapInstance instance)
+	{
+		Runnable task = new Runnable(){
+			@Override
+			public void run()
+			{
+				instance.updateKnownLists();
+			}
+		};
+
+		if(instance.getExecutor() != null)
+			instance.getExecutor().execute(task);
+		else
+			ThreadPoolManager.getInstance().execute(task);
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * This file is part of aion-emu <aion-emu.com>.
+ *
+ *  aion-emu is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-emu is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-emu.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.taskmanager.tasks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.aionemu.gameserver.taskmanager.AbstractPeriodicTaskManager;
+import com.aionemu.gameserver.world.MovementIntegrator;
+
+/**
+ * Steps movement integrators of map instances that have walking objects. Each integrator runs on executor of its map
+ * instance, integrators of different instances in parallel.
+ * 
+ * @author ATracer
+ */
+public final class MovementUpdater extends AbstractPeriodicTaskManager
+{
+	private static final class SingletonHolder
+	{
+		private static final MovementUpdater	INSTANCE	= new MovementUpdater();
+	}
+
+	public static MovementUpdater getInstance()
+	{
+		return SingletonHolder.INSTANCE;
+	}
+
+	private final List<MovementIntegrator>	integrators		= new CopyOnWriteArrayList<MovementIntegrator>();
+
+	private final AtomicLong				steps			= new AtomicLong();
+	private final AtomicLong				stepTime		= new AtomicLong();
+	private final AtomicLong				movedWalkers	= new AtomicLong();
+	private final AtomicLong				skippedSteps	= new AtomicLong();
+
+	private MovementUpdater()
+	{
+		super(MovementIntegrator.STEP_PERIOD);
+	}
+
+	/**
+	 * Register integrator that got its first walker.
+	 * 
+	 * @param integrator
+	 */
+	public void add(MovementIntegrator integrator)
+	{
+		integrators.add(integrator);
+	}
+
+	@Override
+	public void run()
+	{
+		for(MovementIntegrator integrator : integrators)
+		{
+			if(integrator.size() == 0)
+			{
+				integrators.remove(integrator);
+				if(!integrator.unregister())
+					integrators.add(integrator);
+			}
+			else if(!integrator.scheduleStep())
+				skippedSteps.incrementAndGet();
+		}
+	}
+
+	/**
+	 * @param time
+	 *            - duration of step [ns].
+	 * @param moved
+	 *            - number of walkers moved by step.
+	 */
+	public void onStepDone(long time, int moved)
+	{
+		steps.incrementAndGet();
+		stepTime.addAndGet(time);
+		movedWalkers.addAndGet(moved);
+	}
+
+	public List<String> getStats()
+	{
+		int walkers = 0;
+		for(MovementIntegrator integrator : integrators)
+			walkers += integrator.size();
+
+		long count = steps.get();
+		List<String> list = new ArrayList<String>();
+		list.add("Map instances with walkers: " + integrators.size());
+		list.add("Walkers: " + walkers);
+		list.add("Steps: " + count);
+		list.add("Avg step time: " + (count == 0 ? 0 : stepTime.get() / count / 1000) + " us");
+		list.add("Avg moved walkers per step: " + (count == 0 ? 0 : movedWalkers.get() / count));
+		list.add("Skipped steps: " + skippedSteps.get());
+		return list;
+	}
+}
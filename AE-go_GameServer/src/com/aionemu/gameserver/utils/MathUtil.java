@@ -43,6 +43,8 @@ import com.aionemu.gameserver.model.geometry.Point3D;
  * 
  * We don't need squared distances for calculations, {@linkplain Math#sqrt(double)} is very fast.<br>
  * In fact the difference is very small, so it can be ignored.<br>
+ * Range checks that are done for every object of known list [visibility, aggro, area skills] still compare squared
+ * distances, use isInRange, isIn3dRange and getDistanceSquared for them.<br>
  * Feel free to run the following test (or to find a mistake in it ^^).<br>
  * 
  * <pre>
@@ -194,6 +196,45 @@ public class MathUtil
 		return getDistance(object.getX(), object.getY(), object.getZ(), x, y, z);
 	}
 
+	/**
+	 * Returns squared distance between 3D set of coords
+	 * 
+	 * @param x1
+	 *            first x coord
+	 * @param y1
+	 *            first y coord
+	 * @param z1
+	 *            first z coord
+	 * @param x2
+	 *            second x coord
+	 * @param y2
+	 *            second y coord
+	 * @param z2
+	 *            second z coord
+	 * @return squared distance between coords
+	 */
+	public static float getDistanceSquared(float x1, float y1, float z1, float x2, float y2, float z2)
+	{
+		float dx = x1 - x2;
+		float dy = y1 - y2;
+		float dz = z1 - z2;
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	/**
+	 * Returns squared distance between object and 3D set of coords
+	 * 
+	 * @param object
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @return squared distance between object and coords
+	 */
+	public static float getDistanceSquared(VisibleObject object, float x, float y, float z)
+	{
+		return getDistanceSquared(object.getX(), object.getY(), object.getZ(), x, y, z);
+	}
+
 	/**
 	 * Returns closest point on segment to point
 	 * 
@@ -307,11 +348,60 @@ public class MathUtil
 	{
 		if(object1.getWorldId() != object2.getWorldId())
 			return false;
-		
-		float dx = (object2.getX() - object1.getX());
-		float dy = (object2.getY() - object1.getY());
+
+		return isInRange(object1.getX(), object1.getY(), object2.getX(), object2.getY(), range);
+	}
+
+	/**
+	 * Checks whether two given 2D sets of coords are within given range.
+	 * 
+	 * @param x1
+	 * @param y1
+	 * @param x2
+	 * @param y2
+	 * @param range
+	 * @return true if coords are in range, false otherwise
+	 */
+	public static boolean isInRange(float x1, float y1, float x2, float y2, float range)
+	{
+		float dx = x2 - x1;
+		float dy = y2 - y1;
 		return dx * dx + dy * dy < range * range;
 	}
+
+	/**
+	 * Checks whether two given instances of AionObject are within given range, including z difference.
+	 * 
+	 * @param object1
+	 * @param object2
+	 * @param range
+	 * @return true if objects are in range, false otherwise
+	 */
+	public static boolean isIn3dRange(VisibleObject object1, VisibleObject object2, float range)
+	{
+		if(object1.getWorldId() != object2.getWorldId())
+			return false;
+
+		return isIn3dRange(object1.getX(), object1.getY(), object1.getZ(), object2.getX(), object2.getY(), object2
+			.getZ(), range);
+	}
+
+	/**
+	 * Checks whether two given 3D sets of coords are within given range.
+	 * 
+	 * @param x1
+	 * @param y1
+	 * @param z1
+	 * @param x2
+	 * @param y2
+	 * @param z2
+	 * @param range
+	 * @return true if coords are in range, false otherwise
+	 */
+	public static boolean isIn3dRange(float x1, float y1, float z1, float x2, float y2, float z2, float range)
+	{
+		return getDistanceSquared(x1, y1, z1, x2, y2, z2) < range * range;
+	}
 	
 	/**
 	 * 
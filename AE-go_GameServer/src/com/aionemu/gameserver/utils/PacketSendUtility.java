@@ -16,8 +16,16 @@
  */
 package com.aionemu.gameserver.utils;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
 import com.aionemu.commons.objects.filter.ObjectFilter;
 import com.aionemu.gameserver.model.ChatType;
+import com.aionemu.gameserver.model.gameobjects.Creature;
 import com.aionemu.gameserver.model.gameobjects.VisibleObject;
 import com.aionemu.gameserver.model.gameobjects.player.Player;
 import com.aionemu.gameserver.model.legion.Legion;
@@ -35,6 +43,24 @@ import com.aionemu.gameserver.world.World;
  */
 public class PacketSendUtility
 {
+	/**
+	 * Observers nearer than this get every periodic position update of moving creature.
+	 */
+	private static final float		NEAR_UPDATE_RANGE	= 30;
+	/**
+	 * Observers nearer than this get every {@link #MID_UPDATE_RATE}-th update, farther ones every
+	 * {@link #FAR_UPDATE_RATE}-th update.
+	 */
+	private static final float		MID_UPDATE_RANGE	= 60;
+	private static final int		MID_UPDATE_RATE		= 2;
+	private static final int		FAR_UPDATE_RATE		= 4;
+
+	/**
+	 * Number of sent and skipped packets of each type broadcast by {@link #broadcastPositionUpdate}.
+	 */
+	private static final ConcurrentMap<Class<? extends AionServerPacket>, AtomicLong[]>	positionUpdateStats	=
+		new ConcurrentHashMap<Class<? extends AionServerPacket>, AtomicLong[]>();
+
 	/**
 	 * Sends message to player (used for system messages)
 	 * 
@@ -81,6 +107,8 @@ public class PacketSendUtility
 	 */
 	public static void broadcastPacket(Player player, AionServerPacket packet, boolean toSelf)
 	{
+		packet.prepareBroadcast();
+
 		if(toSelf)
 			sendPacket(player, packet);
 
@@ -95,6 +123,8 @@ public class PacketSendUtility
 	 */
 	public static void broadcastPacketAndReceive(VisibleObject visibleObject, AionServerPacket packet)
 	{
+		packet.prepareBroadcast();
+
 		if(visibleObject instanceof Player)
 			sendPacket((Player)visibleObject, packet);
 
@@ -109,6 +139,8 @@ public class PacketSendUtility
 	 */
 	public static void broadcastPacket(VisibleObject visibleObject, AionServerPacket packet)
 	{
+		packet.prepareBroadcast();
+
 		for(VisibleObject obj : visibleObject.getKnownList())
 		{
 			if(obj instanceof Player)
@@ -116,6 +148,69 @@ public class PacketSendUtility
 		}
 	}
 
+	/**
+	 * Broadcast periodic position update of moving creature to all Players from its knownList. Near observers get every
+	 * update, observers in mid and far ring get only some of them and extrapolate movement in between. Packets that
+	 * start, stop or change movement must be broadcast by {@link #broadcastPacket(VisibleObject, AionServerPacket)},
+	 * so every observer knows where the creature goes.
+	 * 
+	 * @param creature
+	 * @param packet
+	 */
+	public static void broadcastPositionUpdate(Creature creature, AionServerPacket packet)
+	{
+		packet.markPositionUpdate();
+		packet.prepareBroadcast();
+
+		int sequence = creature.getMoveController().nextPositionUpdate();
+		boolean midRing = sequence % MID_UPDATE_RATE == 0;
+		boolean farRing = sequence % FAR_UPDATE_RATE == 0;
+		int sent = 0;
+		int skipped = 0;
+
+		for(VisibleObject obj : creature.getKnownList())
+		{
+			if(!(obj instanceof Player))
+				continue;
+
+			if(farRing || MathUtil.isInRange(creature, obj, NEAR_UPDATE_RANGE)
+				|| (midRing && MathUtil.isInRange(creature, obj, MID_UPDATE_RANGE)))
+			{
+				sendPacket((Player) obj, packet);
+				sent++;
+			}
+			else
+				skipped++;
+		}
+
+		AtomicLong[] stats = positionUpdateStats.get(packet.getClass());
+		if(stats == null)
+		{
+			stats = new AtomicLong[] { new AtomicLong(), new AtomicLong() };
+			AtomicLong[] old = positionUpdateStats.putIfAbsent(packet.getClass(), stats);
+			if(old != null)
+				stats = old;
+		}
+		stats[0].addAndGet(sent);
+		stats[1].addAndGet(skipped);
+	}
+
+	/**
+	 * @return Number of sent and skipped position updates of each packet type.
+	 */
+	public static List<String> getPositionUpdateStats()
+	{
+		List<String> result = new ArrayList<String>();
+		for(Map.Entry<Class<? extends AionServerPacket>, AtomicLong[]> entry : positionUpdateStats.entrySet())
+		{
+			long sent = entry.getValue()[0].get();
+			long skipped = entry.getValue()[1].get();
+			result.add(entry.getKey().getSimpleName() + ": sent " + sent + ", skipped " + skipped + " ("
+				+ (sent + skipped == 0 ? 0 : skipped * 100 / (sent + skipped)) + "%)");
+		}
+		return result;
+	}
+
 	/**
 	 * Broadcasts packet to all visible players matching a filter
 	 * 
@@ -131,6 +226,8 @@ public class PacketSendUtility
 	public static void broadcastPacket(Player player, AionServerPacket packet, boolean toSelf,
 		ObjectFilter<Player> filter)
 	{
+		packet.prepareBroadcast();
+
 		if(toSelf)
 		{
 			sendPacket(player, packet);
@@ -157,6 +254,8 @@ public class PacketSendUtility
 	 */
 	public static void broadcastPacketToLegion(Legion legion, AionServerPacket packet, World world)
 	{
+		packet.prepareBroadcast();
+
 		for(Player onlineLegionMember : legion.getOnlineLegionMembers(world))
 		{
 			sendPacket(onlineLegionMember, packet);
@@ -165,6 +264,8 @@ public class PacketSendUtility
 
 	public static void broadcastPacketToLegion(Legion legion, AionServerPacket packet, World world, int playerObjId)
 	{
+		packet.prepareBroadcast();
+
 		for(Player onlineLegionMember : legion.getOnlineLegionMembers(world))
 		{
 			if(onlineLegionMember.getObjectId() != playerObjId)
@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.SynchronousQueue;
@@ -33,7 +34,9 @@ import com.aionemu.commons.network.DisconnectionThreadPool;
 import com.aionemu.commons.utils.concurrent.AionRejectedExecutionHandler;
 import com.aionemu.commons.utils.concurrent.ExecuteWrapper;
 import com.aionemu.commons.utils.concurrent.ScheduledFutureWrapper;
+import com.aionemu.commons.utils.concurrent.TimingWheel;
 import com.aionemu.gameserver.configs.main.ThreadConfig;
+import com.aionemu.gameserver.world.MapTask;
 
 /**
  * @author -Nemesiss-, NB4L1, MrPoke, lord_rex
@@ -44,10 +47,25 @@ public final class ThreadPoolManager implements DisconnectionThreadPool
 
 	private static final long					MAX_DELAY		= TimeUnit.NANOSECONDS.toMillis(Long.MAX_VALUE - System.nanoTime()) / 2;
 
+	/**
+	 * Resolution of timing wheel [ms]
+	 */
+	private static final long					TIMING_WHEEL_TICK	= 10;
+
 	private final ScheduledThreadPoolExecutor	scheduledPool;
 	private final ThreadPoolExecutor			instantPool;
 	private final ThreadPoolExecutor			longRunningPool;
 
+	/**
+	 * One-shot tasks, their due tasks are run by timing wheel pool. Null if disabled.
+	 */
+	private final TimingWheel					timingWheel;
+	/**
+	 * Runs due tasks of timing wheel. Plain executor, so expired task isn't put through delay queue of scheduled pool
+	 * again. Null if timing wheel is disabled.
+	 */
+	private final ThreadPoolExecutor			timingWheelPool;
+
 	/**
 	 * Disconnection scheduled threads pool
 	 */
@@ -77,6 +95,21 @@ public final class ThreadPoolManager implements DisconnectionThreadPool
 		scheduledPool.setRejectedExecutionHandler(new AionRejectedExecutionHandler());
 		scheduledPool.prestartAllCoreThreads();
 
+		if(ThreadConfig.TIMING_WHEEL)
+		{
+			timingWheelPool = new ThreadPoolExecutor(scheduledPool.getCorePoolSize(), scheduledPool.getCorePoolSize(),
+				0, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+			timingWheelPool.setRejectedExecutionHandler(new AionRejectedExecutionHandler());
+			timingWheelPool.prestartAllCoreThreads();
+			timingWheel = new TimingWheel(TIMING_WHEEL_TICK, timingWheelPool,
+				ThreadConfig.MAXIMUM_RUNTIME_IN_MILLISEC_WITHOUT_WARNING);
+		}
+		else
+		{
+			timingWheelPool = null;
+			timingWheel = null;
+		}
+
 		instantPool = new ThreadPoolExecutor(instantPoolSize, instantPoolSize, 0, TimeUnit.SECONDS,
 			new ArrayBlockingQueue<Runnable>(100000));
 		instantPool.setRejectedExecutionHandler(new AionRejectedExecutionHandler());
@@ -125,12 +158,25 @@ public final class ThreadPoolManager implements DisconnectionThreadPool
 
 	// ===========================================================================================
 
+	/**
+	 * Let map task know its future, so it doesn't run after the future was cancelled even if it was already queued on
+	 * map executor.
+	 */
+	private static ScheduledFuture<?> bind(Runnable r, ScheduledFuture<?> future)
+	{
+		if(r instanceof MapTask)
+			((MapTask) r).bind(future);
+		return future;
+	}
+
 	public final ScheduledFuture<?> schedule(Runnable r, long delay)
 	{
-		r = new ThreadPoolExecuteWrapper(r);
 		delay = validate(delay);
+		if(timingWheel != null && delay <= timingWheel.getMaxDelay())
+			return bind(r, timingWheel.schedule(r, delay));
 
-		return new ScheduledFutureWrapper(scheduledPool.schedule(r, delay, TimeUnit.MILLISECONDS));
+		return bind(r, new ScheduledFutureWrapper(scheduledPool.schedule(new ThreadPoolExecuteWrapper(r), delay,
+			TimeUnit.MILLISECONDS)));
 	}
 
 	public final ScheduledFuture<?> scheduleEffect(Runnable r, long delay)
@@ -152,11 +198,11 @@ public final class ThreadPoolManager implements DisconnectionThreadPool
 
 	public final ScheduledFuture<?> scheduleAtFixedRate(Runnable r, long delay, long period)
 	{
-		r = new ThreadPoolExecuteWrapper(r);
 		delay = validate(delay);
 		period = validate(period);
 
-		return new ScheduledFutureWrapper(scheduledPool.scheduleAtFixedRate(r, delay, period, TimeUnit.MILLISECONDS));
+		return bind(r, new ScheduledFutureWrapper(scheduledPool.scheduleAtFixedRate(new ThreadPoolExecuteWrapper(r),
+			delay, period, TimeUnit.MILLISECONDS)));
 	}
 
 	public final ScheduledFuture<?> scheduleEffectAtFixedRate(Runnable r, long delay, long period)
@@ -273,6 +319,8 @@ public final class ThreadPoolManager implements DisconnectionThreadPool
 		scheduledPool.purge();
 		instantPool.purge();
 		longRunningPool.purge();
+		if(timingWheelPool != null)
+			timingWheelPool.purge();
 		disconnectionScheduledThreadPool.purge();
 	}
 
@@ -298,6 +346,11 @@ public final class ThreadPoolManager implements DisconnectionThreadPool
 			success |= awaitTermination(5000);
 
 			scheduledPool.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+			if(timingWheel != null)
+			{
+				timingWheel.shutdown();
+				timingWheelPool.shutdown();
+			}
 			scheduledPool.setContinueExistingPeriodicTasksAfterShutdownPolicy(false);
 
 			success |= awaitTermination(10000);
@@ -334,6 +387,20 @@ public final class ThreadPoolManager implements DisconnectionThreadPool
 		list.add("\tgetQueuedTaskCount: .. " + scheduledPool.getQueue().size());
 		list.add("\tgetTaskCount: ........ " + scheduledPool.getTaskCount());
 		list.add("");
+		if(timingWheel != null)
+		{
+			list.add("Timing wheel:");
+			list.add("=================================================");
+			list.add("\tgetPendingCount: ..... " + timingWheel.getPendingCount());
+			list.add("\tgetScheduledCount: ... " + timingWheel.getScheduledCount());
+			list.add("\tgetCancelledCount: ... " + timingWheel.getCancelledCount());
+			list.add("\tgetExpiredCount: ..... " + timingWheel.getExpiredCount());
+			list.add("\tgetActiveCount: ...... " + timingWheelPool.getActiveCount());
+			list.add("\tgetPoolSize: ......... " + timingWheelPool.getPoolSize());
+			list.add("\tgetCompletedTaskCount: " + timingWheelPool.getCompletedTaskCount());
+			list.add("\tgetQueuedTaskCount: .. " + timingWheelPool.getQueue().size());
+			list.add("");
+		}
 		list.add("Instant pool:");
 		list.add("=================================================");
 		list.add("\tgetActiveCount: ...... " + instantPool.getActiveCount());
@@ -387,6 +454,10 @@ public final class ThreadPoolManager implements DisconnectionThreadPool
 			if(!longRunningPool.awaitTermination(10, TimeUnit.MILLISECONDS) && longRunningPool.getActiveCount() > 0)
 				continue;
 
+			if(timingWheelPool != null && !timingWheelPool.awaitTermination(10, TimeUnit.MILLISECONDS)
+				&& timingWheelPool.getActiveCount() > 0)
+				continue;
+
 			return true;
 		}
 
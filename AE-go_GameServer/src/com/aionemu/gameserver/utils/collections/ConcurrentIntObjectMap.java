@@ -0,0 +1,366 @@
+/*
+ * This file is part of aion-emu <aion-emu.com>.
+ *
+ *  aion-emu is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-emu is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-emu.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.utils.collections;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Map with primitive int keys, intended for registries of objects by their object id. Entries are stored in open
+ * addressing table with linear probing, so keys are never boxed and entries don't need node objects.<br>
+ * Reads and iteration are lock free, writes are synchronized. Iterators are weakly consistent, like iterators of
+ * java.util.concurrent collections: they never throw ConcurrentModificationException and may or may not reflect
+ * modifications made after their creation.<br>
+ * Null values are not allowed.
+ * 
+ * @author ATracer
+ * 
+ * @param <V>
+ */
+public class ConcurrentIntObjectMap<V> implements Iterable<V>
+{
+	/**
+	 * Capacity of empty table.
+	 */
+	private static final int	MIN_CAPACITY	= 8;
+
+	/**
+	 * Value of slot whose entry was removed. Such slot keeps its key, so it may be reused only by the same key and key
+	 * of a slot never changes once it was published to readers.
+	 */
+	private static final Object	REMOVED			= new Object();
+
+	/**
+	 * Current table, replaced as a whole when it's rebuilt.
+	 */
+	private volatile Table		table			= new Table(MIN_CAPACITY);
+
+	/**
+	 * Number of entries.
+	 */
+	private volatile int		size;
+
+	/**
+	 * Number of slots with removed entries, guarded by this.
+	 */
+	private int					removed;
+
+	/**
+	 * Values view of this map.
+	 */
+	private final Collection<V>	values			= new Values();
+
+	/**
+	 * Open addressing table, capacity is power of 2.
+	 */
+	private static final class Table
+	{
+		private final int							shift;
+		private final int							mask;
+		private final int[]							keys;
+		private final AtomicReferenceArray<Object>	values;
+
+		private Table(int capacity)
+		{
+			shift = 32 - Integer.numberOfTrailingZeros(capacity);
+			mask = capacity - 1;
+			keys = new int[capacity];
+			values = new AtomicReferenceArray<Object>(capacity);
+		}
+
+		/**
+		 * Object ids are mostly sequential, so they are spread by fibonacci hashing.
+		 * 
+		 * @param key
+		 * @return index of slot where search for given key starts.
+		 */
+		private int indexOf(int key)
+		{
+			return (key * 0x9E3779B9) >>> shift;
+		}
+
+		/**
+		 * @param key
+		 * @return index of slot with given key or of the first free slot of its probe sequence.
+		 */
+		private int find(int key)
+		{
+			for(int i = indexOf(key);; i = (i + 1) & mask)
+			{
+				/** value is read first, key of non empty slot is visible after that */
+				if(values.get(i) == null || keys[i] == key)
+					return i;
+			}
+		}
+	}
+
+	/**
+	 * @param key
+	 * @return value mapped to given key or null.
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(int key)
+	{
+		Table t = table;
+		Object value = t.values.get(t.find(key));
+		return value == REMOVED ? null : (V) value;
+	}
+
+	/**
+	 * @param key
+	 * @return true if there is value mapped to given key.
+	 */
+	public boolean containsKey(int key)
+	{
+		return get(key) != null;
+	}
+
+	/**
+	 * Map value to given key.
+	 * 
+	 * @param key
+	 * @param value
+	 * @return value previously mapped to given key or null.
+	 */
+	public synchronized V put(int key, V value)
+	{
+		return put(key, value, false);
+	}
+
+	/**
+	 * Map value to given key if no value is mapped to it yet.
+	 * 
+	 * @param key
+	 * @param value
+	 * @return value mapped to given key or null if given value was mapped.
+	 */
+	public synchronized V putIfAbsent(int key, V value)
+	{
+		return put(key, value, true);
+	}
+
+	@SuppressWarnings("unchecked")
+	private V put(int key, V value, boolean onlyIfAbsent)
+	{
+		if(value == null)
+			throw new NullPointerException();
+
+		Table t = table;
+		int i = t.find(key);
+		Object old = t.values.get(i);
+		if(old == null)
+		{
+			t.keys[i] = key;
+			t.values.set(i, value);
+			size++;
+			/** keep at least half of slots free, so probe sequences stay short */
+			if((size + removed) * 2 > t.keys.length)
+				rebuild();
+			return null;
+		}
+
+		if(old == REMOVED)
+		{
+			t.values.set(i, value);
+			removed--;
+			size++;
+			return null;
+		}
+
+		if(!onlyIfAbsent)
+			t.values.set(i, value);
+		return (V) old;
+	}
+
+	/**
+	 * Remove value mapped to given key.
+	 * 
+	 * @param key
+	 * @return removed value or null.
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized V remove(int key)
+	{
+		Table t = table;
+		int i = t.find(key);
+		Object old = t.values.get(i);
+		if(old == null || old == REMOVED)
+			return null;
+
+		t.values.set(i, REMOVED);
+		size--;
+		removed++;
+		return (V) old;
+	}
+
+	/**
+	 * Remove all entries.
+	 */
+	public synchronized void clear()
+	{
+		table = new Table(MIN_CAPACITY);
+		size = 0;
+		removed = 0;
+	}
+
+	/**
+	 * Copy entries to new table that has capacity of at least three times the number of entries, so it is filled to
+	 * less than third. Slots of removed entries are dropped, so the table also shrinks after many removals.
+	 */
+	private void rebuild()
+	{
+		Table t = table;
+		int capacity = MIN_CAPACITY;
+		while(capacity < size * 3)
+			capacity <<= 1;
+
+		Table newTable = new Table(capacity);
+		for(int i = 0; i < t.keys.length; i++)
+		{
+			Object value = t.values.get(i);
+			if(value == null || value == REMOVED)
+				continue;
+			int j = newTable.find(t.keys[i]);
+			newTable.keys[j] = t.keys[i];
+			newTable.values.set(j, value);
+		}
+		removed = 0;
+		table = newTable;
+	}
+
+	/**
+	 * @return Number of entries.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @return true if there are no entries.
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * @return Number of slots of current table.
+	 */
+	public int capacity()
+	{
+		return table.keys.length;
+	}
+
+	/**
+	 * @return Weakly consistent collection view of values of this map.
+	 */
+	public Collection<V> values()
+	{
+		return values;
+	}
+
+	/**
+	 * Iterator over values of this map, its remove() removes entry of last returned value.
+	 * 
+	 * @see java.lang.Iterable#iterator()
+	 */
+	@Override
+	public Iterator<V> iterator()
+	{
+		return new ValueIterator(table);
+	}
+
+	private final class Values extends AbstractCollection<V>
+	{
+		@Override
+		public Iterator<V> iterator()
+		{
+			return ConcurrentIntObjectMap.this.iterator();
+		}
+
+		@Override
+		public int size()
+		{
+			return size;
+		}
+	}
+
+	private final class ValueIterator implements Iterator<V>
+	{
+		private final Table	table;
+		/**
+		 * Slot of value that will be returned by next().
+		 */
+		private int			next	= -1;
+		/**
+		 * Slot of value last returned by next().
+		 */
+		private int			last	= -1;
+		private Object		nextValue;
+
+		private ValueIterator(Table table)
+		{
+			this.table = table;
+			advance();
+		}
+
+		private void advance()
+		{
+			while(++next < table.keys.length)
+			{
+				Object value = table.values.get(next);
+				if(value != null && value != REMOVED)
+				{
+					nextValue = value;
+					return;
+				}
+			}
+			nextValue = null;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return nextValue != null;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public V next()
+		{
+			if(nextValue == null)
+				throw new NoSuchElementException();
+			Object value = nextValue;
+			last = next;
+			advance();
+			return (V) value;
+		}
+
+		@Override
+		public void remove()
+		{
+			if(last < 0)
+				throw new IllegalStateException();
+			ConcurrentIntObjectMap.this.remove(table.keys[last]);
+			last = -1;
+		}
+	}
+}
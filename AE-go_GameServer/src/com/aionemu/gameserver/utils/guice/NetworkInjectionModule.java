@@ -81,9 +81,9 @@ public class NetworkInjectionModule extends AbstractModule
 	NioServer provideNioServer(ConnectionFactory connectionFactory)
 	{
 		ServerCfg aion = new ServerCfg(NetworkConfig.GAME_BIND_ADDRESS, NetworkConfig.GAME_PORT, "Aion Connections",
-			connectionFactory);
+			connectionFactory, NetworkConfig.NIO_BUFFER_POOL);
 
-		return new NioServer(1, ThreadPoolManager.getInstance(), aion);
+		return new NioServer(NetworkConfig.NIO_READ_WRITE_THREADS, ThreadPoolManager.getInstance(), aion);
 	}
 
 }
@@ -18,13 +18,13 @@ package com.aionemu.gameserver.world;
 
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.Map;
-
-import javolution.util.FastMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.aionemu.gameserver.model.gameobjects.AionObject;
 import com.aionemu.gameserver.model.gameobjects.VisibleObject;
 import com.aionemu.gameserver.utils.MathUtil;
+import com.aionemu.gameserver.utils.collections.ConcurrentIntObjectMap;
 
 /**
  * KnownList.
@@ -40,11 +40,25 @@ public class KnownList implements Iterable<VisibleObject>
 	 */
 
 	// how far player will see visible object
-	private static final int						VisibilityDistance			= 95;
+	static final int								VisibilityDistance			= 95;
 	
 	// maxZvisibleDistance
 	private static final int						maxZvisibleDistance 		= 95;
 
+	/**
+	 * Moving object updates its known list only when it moved at least this distance since last update or when it
+	 * entered another map region.
+	 */
+	private static final float						UPDATE_DISTANCE				= 10;
+
+	/**
+	 * Statistics of known list updates of all objects.
+	 */
+	private static final AtomicLong					fullUpdates					= new AtomicLong();
+	private static final AtomicLong					skippedUpdates				= new AtomicLong();
+	private static final AtomicLong					seenObjects					= new AtomicLong();
+	private static final AtomicLong					forgottenObjects			= new AtomicLong();
+
 	/**
 	 * Owner of this KnownList.
 	 */
@@ -52,7 +66,20 @@ public class KnownList implements Iterable<VisibleObject>
 	/**
 	 * List of objects that this KnownList owner known
 	 */
-	protected final Map<Integer, VisibleObject>	knownObjects	= new FastMap<Integer, VisibleObject>().shared();
+	protected final ConcurrentIntObjectMap<VisibleObject>	knownObjects	= new ConcurrentIntObjectMap<VisibleObject>();
+
+	/**
+	 * Region and coordinates of owner at the time of last update, region is null if next update must not be skipped.
+	 */
+	private MapRegion								lastUpdateRegion;
+	private float									lastUpdateX;
+	private float									lastUpdateY;
+	private float									lastUpdateZ;
+
+	/**
+	 * True if this known list is waiting in update queue of map instance.
+	 */
+	private final AtomicBoolean						updateQueued	= new AtomicBoolean();
 
 	/**
 	 * COnstructor.
@@ -69,15 +96,68 @@ public class KnownList implements Iterable<VisibleObject>
 	 */
 	public void doUpdate()
 	{
+		if(owner.isSpawned())
+		{
+			lastUpdateRegion = owner.getActiveRegion();
+			lastUpdateX = owner.getX();
+			lastUpdateY = owner.getY();
+			lastUpdateZ = owner.getZ();
+		}
+
+		fullUpdates.incrementAndGet();
 		forgetObjects();
 		findVisibleObjects();
 	}
 
+	/**
+	 * Do KnownList update after owner moved. Update is skipped when owner stays in the same region and moved less than
+	 * {@link #UPDATE_DISTANCE} since last update, so objects that entered or left visibility range are noticed within
+	 * this distance of movement of either object.
+	 */
+	public void doMoveUpdate()
+	{
+		if(lastUpdateRegion != null && lastUpdateRegion == owner.getActiveRegion()
+			&& MathUtil.getDistanceSquared(owner, lastUpdateX, lastUpdateY, lastUpdateZ) < UPDATE_DISTANCE
+				* UPDATE_DISTANCE)
+		{
+			skippedUpdates.incrementAndGet();
+			return;
+		}
+		doUpdate();
+	}
+
+	/**
+	 * Mark this known list as waiting for update.
+	 * 
+	 * @return false if it is already waiting.
+	 */
+	boolean markUpdateQueued()
+	{
+		return updateQueued.compareAndSet(false, true);
+	}
+
+	/**
+	 * Mark this known list as taken from update queue.
+	 */
+	void clearUpdateQueued()
+	{
+		updateQueued.set(false);
+	}
+
+	/**
+	 * @return Owner of this KnownList.
+	 */
+	VisibleObject getOwner()
+	{
+		return owner;
+	}
+
 	/**
 	 * Clear known list. Used when object is despawned.
 	 */
 	public void clear()
 	{
+		lastUpdateRegion = null;
 		Iterator<VisibleObject> knownIt = iterator();
 		while(knownIt.hasNext())
 		{
@@ -106,7 +186,7 @@ public class KnownList implements Iterable<VisibleObject>
 	@Override
 	public Iterator<VisibleObject> iterator()
 	{
-		return knownObjects.values().iterator();
+		return knownObjects.iterator();
 	}
 
 	/**
@@ -148,11 +228,12 @@ public class KnownList implements Iterable<VisibleObject>
 		{
 			VisibleObject obj = knownIt.next();
 
-			if(!checkObjectInRange(owner, obj))
+			if(!checkObjectInRange(owner, obj) || !keepsSeeing(obj))
 			{
 				knownIt.remove();
 				owner.getController().notSee(obj, true);
 				obj.getKnownList().del(owner, true);
+				forgottenObjects.incrementAndGet();
 			}
 		}
 	}
@@ -165,11 +246,15 @@ public class KnownList implements Iterable<VisibleObject>
 		if(owner == null || !owner.isSpawned())
 			return;
 		
-		Iterator<MapRegion> neighboursIt = owner.getActiveRegion().getNeighboursIterator();
+		MapRegion ownerRegion = owner.getActiveRegion();
+		Iterator<MapRegion> neighboursIt = ownerRegion.getNeighboursIterator();
 
 		while(neighboursIt.hasNext())
 		{
 			MapRegion r = neighboursIt.next();
+			if(r != ownerRegion && !r.isInRange(owner.getX(), owner.getY(), VisibilityDistance))
+				continue;
+
 			Collection<VisibleObject> objects = r.getObjects();
 
 			for(VisibleObject newObject : objects)
@@ -180,6 +265,9 @@ public class KnownList implements Iterable<VisibleObject>
 				if(!checkObjectInRange(owner, newObject))
 					continue;
 
+				if(!knowns(newObject) && (!canSee(newObject) || !newObject.getKnownList().canSee(owner)))
+					continue;
+
 				/**
 				 * New object is not known.
 				 */
@@ -187,6 +275,7 @@ public class KnownList implements Iterable<VisibleObject>
 				{
 					newObject.getKnownList().add(owner);
 					owner.getController().see(newObject);
+					seenObjects.incrementAndGet();
 				}
 			}
 		}
@@ -198,6 +287,61 @@ public class KnownList implements Iterable<VisibleObject>
 		if(Math.abs(owner.getZ() - newObject.getZ()) > maxZvisibleDistance)
 			return false;				
 
-			return MathUtil.isInRange(owner, newObject, VisibilityDistance);
+			return MathUtil.isInRange(owner.getX(), owner.getY(), newObject.getX(), newObject.getY(),
+				VisibilityDistance);
+	}
+
+	/**
+	 * Check if owner may start to know given object that is in visibility range.
+	 * 
+	 * @param object
+	 * @return true if object may be added to this known list.
+	 */
+	protected boolean canSee(VisibleObject object)
+	{
+		return true;
+	}
+
+	/**
+	 * Check if owner may keep knowing given object that is in visibility range.
+	 * 
+	 * @param object
+	 * @return false if object should be forgotten.
+	 */
+	protected boolean keepsSeeing(VisibleObject object)
+	{
+		return true;
+	}
+
+	/**
+	 * @return Number of known list updates done since server start.
+	 */
+	public static long getFullUpdates()
+	{
+		return fullUpdates.get();
+	}
+
+	/**
+	 * @return Number of known list updates skipped because object didn't move far enough.
+	 */
+	public static long getSkippedUpdates()
+	{
+		return skippedUpdates.get();
+	}
+
+	/**
+	 * @return Number of objects that entered visibility range of updated objects.
+	 */
+	public static long getSeenObjects()
+	{
+		return seenObjects.get();
+	}
+
+	/**
+	 * @return Number of objects that left visibility range of updated objects.
+	 */
+	public static long getForgottenObjects()
+	{
+		return forgottenObjects.get();
 	}
 }
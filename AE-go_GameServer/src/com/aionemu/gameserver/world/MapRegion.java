@@ -21,9 +21,11 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 
-import javolution.util.FastMap;
-
+import com.aionemu.gameserver.configs.main.GSConfig;
+import com.aionemu.gameserver.model.gameobjects.Creature;
 import com.aionemu.gameserver.model.gameobjects.VisibleObject;
+import com.aionemu.gameserver.model.gameobjects.player.Player;
+import com.aionemu.gameserver.utils.collections.ConcurrentIntObjectMap;
 
 /**
  * Just some part of map.
@@ -41,6 +43,14 @@ public class MapRegion
 	 * WorldMapInstance witch is parent of this map region.
 	 */
 	private final WorldMapInstance		parent;
+	/**
+	 * Coordinates of lower corner of this region.
+	 */
+	private final int					minX, minY;
+	/**
+	 * Size of this region.
+	 */
+	private final int					size;
 	/**
 	 * Surrounding regions + self.
 	 */
@@ -48,18 +58,33 @@ public class MapRegion
 	/**
 	 * Objects on this map region.
 	 */
-	private final FastMap<Integer, VisibleObject> 	objects	= new FastMap<Integer, VisibleObject>().shared();
+	private final ConcurrentIntObjectMap<VisibleObject>	objects	= new ConcurrentIntObjectMap<VisibleObject>();
+	/**
+	 * Number of players on this region, guarded by parent.
+	 */
+	private int							playerCount;
+	/**
+	 * Number of neighbours [including self] that have players on them, written under lock of parent. Region is
+	 * dormant when it is 0.
+	 */
+	private volatile int				activeNeighbours;
 
 	/**
 	 * Constructor.
 	 * 
 	 * @param id
 	 * @param parent
+	 * @param minX
+	 * @param minY
+	 * @param size
 	 */
-	MapRegion(int id, WorldMapInstance parent)
+	MapRegion(int id, WorldMapInstance parent, int minX, int minY, int size)
 	{
 		this.regionId = id;
 		this.parent = parent;
+		this.minX = minX;
+		this.minY = minY;
+		this.size = size;
 		this.neighbours.add(this);
 	}
 
@@ -108,6 +133,20 @@ public class MapRegion
 		return neighbours.iterator();
 	}
 
+	/**
+	 * Checks if this region overlaps square of side 2 * range centered at given coordinates, so it may contain objects
+	 * in that range.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param range
+	 * @return true if objects of this region may be in range.
+	 */
+	public boolean isInRange(float x, float y, float range)
+	{
+		return x + range >= minX && x - range < minX + size && y + range >= minY && y - range < minY + size;
+	}
+
 	/**
 	 * Returns iterator over AionObjects on this region
 	 * 
@@ -126,6 +165,8 @@ public class MapRegion
 	void addNeighbourRegion(MapRegion neighbour)
 	{
 		neighbours.add(neighbour);
+		if(neighbour.playerCount > 0)
+			activeNeighbours++;
 	}
 
 	/**
@@ -135,7 +176,17 @@ public class MapRegion
 	 */
 	void add(VisibleObject object)
 	{
-		objects.put(object.getObjectId(), object);
+		if(objects.put(object.getObjectId(), object) == null && object instanceof Player)
+		{
+			synchronized(parent)
+			{
+				if(playerCount++ == 0)
+				{
+					for(MapRegion neighbour : neighbours)
+						neighbour.neighbourActivated();
+				}
+			}
+		}
 	}
 
 	/**
@@ -145,6 +196,47 @@ public class MapRegion
 	 */
 	void remove(VisibleObject object)
 	{
-		objects.remove(object.getObjectId());
+		if(objects.remove(object.getObjectId()) != null && object instanceof Player)
+		{
+			synchronized(parent)
+			{
+				if(--playerCount == 0)
+				{
+					for(MapRegion neighbour : neighbours)
+						neighbour.activeNeighbours--;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Called under lock of parent when one of neighbours got its first player. Npcs of region that was dormant until
+	 * now resume their ai and movement.
+	 */
+	private void neighbourActivated()
+	{
+		if(activeNeighbours++ > 0)
+			return;
+
+		for(VisibleObject object : objects.values())
+		{
+			if(object instanceof Creature && !(object instanceof Player))
+			{
+				Creature creature = (Creature) object;
+				creature.getAi().resume();
+				creature.getMoveController().resume();
+			}
+		}
+	}
+
+	/**
+	 * Region is active if there are players on it or on any of its neighbours, so ai and movement of npcs there may be
+	 * seen by someone. Npcs in dormant regions suspend their tasks until region is active again.
+	 * 
+	 * @return true if this region is active.
+	 */
+	public boolean isActive()
+	{
+		return activeNeighbours > 0 || !GSConfig.DORMANT_REGIONS;
 	}
 }
@@ -0,0 +1,112 @@
+/*
+ * This file is part of aion-emu <aion-emu.com>.
+ *
+ *  aion-emu is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-emu is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-emu.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.world;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.aionemu.gameserver.model.gameobjects.VisibleObject;
+
+/**
+ * Task of visible object that runs on executor of map instance where the object is at the time task is fired. If map
+ * executors are disabled it runs directly on thread that fired it.<br>
+ * Periodic task is queued on map executor only once at a time, so it doesn't pile up when the executor is busy. Task
+ * that was cancelled or whose future was cancelled doesn't run, even if it was already queued.
+ * 
+ * @author ATracer
+ */
+public class MapTask implements Runnable
+{
+	private final VisibleObject	owner;
+	private final Runnable		task;
+	private final AtomicBoolean	queued	= new AtomicBoolean();
+	private volatile boolean	cancelled;
+	/**
+	 * Future of scheduled task that fires this one, null if it isn't scheduled by ThreadPoolManager.
+	 */
+	private volatile Future<?>	future;
+
+	private final Runnable		queuedTask	= new Runnable(){
+		@Override
+		public void run()
+		{
+			queued.set(false);
+			if(!isCancelled())
+				task.run();
+		}
+	};
+
+	/**
+	 * @param owner
+	 *            - object whose map instance runs the task.
+	 * @param task
+	 */
+	public MapTask(VisibleObject owner, Runnable task)
+	{
+		this.owner = owner;
+		this.task = task;
+	}
+
+	/**
+	 * @param future
+	 *            - future of scheduled task that fires this one.
+	 */
+	public void bind(Future<?> future)
+	{
+		this.future = future;
+	}
+
+	/**
+	 * Stop this task, it won't run anymore even if it was already queued on map executor.
+	 */
+	public void cancel()
+	{
+		cancelled = true;
+	}
+
+	/**
+	 * @return true if this task or its future was cancelled.
+	 */
+	public boolean isCancelled()
+	{
+		Future<?> f = future;
+		return cancelled || (f != null && f.isCancelled());
+	}
+
+	@Override
+	public void run()
+	{
+		if(isCancelled())
+			return;
+
+		MapRegion region = owner.getActiveRegion();
+		if(region == null)
+		{
+			task.run();
+			return;
+		}
+
+		if(queued.compareAndSet(false, true))
+			region.getParent().execute(queuedTask);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "MapTask [" + owner + ": " + task + "]";
+	}
+}
@@ -0,0 +1,440 @@
+/*
+ * This file is part of aion-emu <aion-emu.com>.
+ *
+ *  aion-emu is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-emu is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-emu.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.world;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.aionemu.gameserver.model.gameobjects.VisibleObject;
+import com.aionemu.gameserver.taskmanager.tasks.MovementUpdater;
+import com.aionemu.gameserver.utils.ThreadPoolManager;
+
+/**
+ * Moves all walking objects of one map instance toward their targets in one pass every {@link #STEP_PERIOD}
+ * milliseconds. A step is done in phases: walkers are asked for their position and target, new positions are
+ * computed over contiguous arrays, positions are applied, and then movement packets are sent and known lists are
+ * refreshed for walkers that need it.
+ * 
+ * @author ATracer
+ */
+public class MovementIntegrator implements Runnable
+{
+	/**
+	 * Time between two steps [ms]
+	 */
+	public static final int		STEP_PERIOD		= 200;
+
+	/**
+	 * Fraction of second of one step
+	 */
+	private static final float	STEP_TIME		= STEP_PERIOD / 1000f;
+
+	/**
+	 * Flags returned by {@link Walker#onStep(float, float, float, byte)}
+	 */
+	public static final int		STEP_KNOWNLIST	= 1;
+	public static final int		STEP_DIRECTION	= 2;
+
+	private static final byte	SKIP			= 0;
+	private static final byte	MOVE			= 1;
+	private static final byte	ARRIVE			= 2;
+
+	/**
+	 * Object moved by {@link MovementIntegrator}.
+	 */
+	public static interface Walker
+	{
+		/**
+		 * @return object that walks.
+		 */
+		VisibleObject getOwner();
+
+		/**
+		 * Called at start of step, walker may update its target here.
+		 * 
+		 * @return false if walker shouldn't move in this step.
+		 */
+		boolean prepareStep();
+
+		float getTargetX();
+
+		float getTargetY();
+
+		float getTargetZ();
+
+		/**
+		 * @return speed in meters per second.
+		 */
+		float getSpeed();
+
+		/**
+		 * @return distance from target where walker stops.
+		 */
+		float getDistance();
+
+		/**
+		 * Apply new position of owner without known list update.
+		 * 
+		 * @return {@link #STEP_KNOWNLIST} and {@link #STEP_DIRECTION} flags.
+		 */
+		int onStep(float x, float y, float z, byte heading);
+
+		/**
+		 * Send start of movement in new direction.
+		 * 
+		 * @param x
+		 * @param y
+		 * @param z
+		 *            - position before step.
+		 * @param vx
+		 * @param vy
+		 *            - velocity per second.
+		 * @param heading
+		 */
+		void onDirectionChanged(float x, float y, float z, float vx, float vy, byte heading);
+
+		/**
+		 * Walker is within its distance from target.
+		 */
+		void onArrived();
+	}
+
+	/**
+	 * Handle of walker added to {@link MovementIntegrator}
+	 */
+	public static final class Mover
+	{
+		private final Walker				walker;
+		private final MovementIntegrator	integrator;
+		/**
+		 * Index in walkers array of integrator, -1 if removed. Written under integrator lock, read without it by step so
+		 * walker removed during step isn't moved anymore.
+		 */
+		private volatile int				index;
+
+		private Mover(MovementIntegrator integrator, Walker walker)
+		{
+			this.integrator = integrator;
+			this.walker = walker;
+		}
+
+		/**
+		 * @return integrator this walker was added to.
+		 */
+		public MovementIntegrator getIntegrator()
+		{
+			return integrator;
+		}
+	}
+
+	private final WorldMapInstance	instance;
+
+	private Mover[]					movers		= new Mover[16];
+	private volatile int			size;
+
+	/**
+	 * True while this integrator is registered in {@link MovementUpdater}
+	 */
+	private final AtomicBoolean		registered	= new AtomicBoolean();
+
+	/**
+	 * True while step is queued or running
+	 */
+	private final AtomicBoolean		stepping	= new AtomicBoolean();
+
+	/**
+	 * Step state, used only by thread doing the step
+	 */
+	private Mover[]					stepMovers	= new Mover[16];
+	private float[]					x			= new float[16];
+	private float[]					y			= new float[16];
+	private float[]					z			= new float[16];
+	private float[]					targetX		= new float[16];
+	private float[]					targetY		= new float[16];
+	private float[]					targetZ		= new float[16];
+	private float[]					speed		= new float[16];
+	private float[]					distance	= new float[16];
+	private float[]					dx			= new float[16];
+	private float[]					dy			= new float[16];
+	private float[]					dz			= new float[16];
+	private byte[]					heading		= new byte[16];
+	private byte[]					state		= new byte[16];
+	private int[]					flags		= new int[16];
+
+	/**
+	 * @param instance
+	 *            - map instance whose objects are moved.
+	 */
+	MovementIntegrator(WorldMapInstance instance)
+	{
+		this.instance = instance;
+	}
+
+	/**
+	 * Start moving walker every step until it is removed.
+	 * 
+	 * @param walker
+	 * @return handle for removing walker.
+	 */
+	public Mover add(Walker walker)
+	{
+		Mover mover = new Mover(this, walker);
+		synchronized(this)
+		{
+			if(size == movers.length)
+			{
+				Mover[] newMovers = new Mover[movers.length * 2];
+				System.arraycopy(movers, 0, newMovers, 0, size);
+				movers = newMovers;
+			}
+			mover.index = size;
+			movers[size] = mover;
+			size++;
+		}
+
+		if(registered.compareAndSet(false, true))
+			MovementUpdater.getInstance().add(this);
+		return mover;
+	}
+
+	/**
+	 * Stop moving walker of given handle.
+	 * 
+	 * @param mover
+	 */
+	public synchronized void remove(Mover mover)
+	{
+		if(mover.index < 0)
+			return;
+
+		int last = size - 1;
+		Mover moved = movers[last];
+		movers[mover.index] = moved;
+		moved.index = mover.index;
+		movers[last] = null;
+		size = last;
+		mover.index = -1;
+	}
+
+	/**
+	 * @return number of walkers moved by this integrator.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Called by {@link MovementUpdater} after it dropped this integrator because it had no walkers, so next added
+	 * walker registers it again.
+	 * 
+	 * @return false if walker was added meanwhile and integrator must stay registered.
+	 */
+	public boolean unregister()
+	{
+		registered.set(false);
+		/** walker could be added meanwhile, it didn't register integrator since flag was still set */
+		return !(size > 0 && registered.compareAndSet(false, true));
+	}
+
+	/**
+	 * Run next step on executor of map instance, unless previous step didn't finish yet.
+	 * 
+	 * @return false if step was skipped.
+	 */
+	public boolean scheduleStep()
+	{
+		if(!stepping.compareAndSet(false, true))
+			return false;
+
+		if(instance != null && instance.getExecutor() != null)
+			instance.getExecutor().execute(this);
+		else
+			ThreadPoolManager.getInstance().execute(this);
+		return true;
+	}
+
+	@Override
+	public void run()
+	{
+		long start = System.nanoTime();
+		int moved = 0;
+		try
+		{
+			moved = step();
+		}
+		finally
+		{
+			stepping.set(false);
+			MovementUpdater.getInstance().onStepDone(System.nanoTime() - start, moved);
+		}
+	}
+
+	/**
+	 * Move every walker one step.
+	 * 
+	 * @return number of walkers that moved.
+	 */
+	int step()
+	{
+		int count = prepare();
+		integrate(count);
+		int moved = apply(count);
+		broadcast(count);
+		return moved;
+	}
+
+	/**
+	 * Copy walkers, their positions and targets into step arrays.
+	 */
+	private int prepare()
+	{
+		int count;
+		synchronized(this)
+		{
+			count = size;
+			if(stepMovers.length < count)
+				resize(movers.length);
+			System.arraycopy(movers, 0, stepMovers, 0, count);
+		}
+
+		for(int i = 0; i < count; i++)
+		{
+			Walker walker = stepMovers[i].walker;
+			VisibleObject owner = walker.getOwner();
+			if(!owner.isSpawned() || !walker.prepareStep())
+			{
+				state[i] = SKIP;
+				continue;
+			}
+			x[i] = owner.getX();
+			y[i] = owner.getY();
+			z[i] = owner.getZ();
+			targetX[i] = walker.getTargetX();
+			targetY[i] = walker.getTargetY();
+			targetZ[i] = walker.getTargetZ();
+			speed[i] = walker.getSpeed() * STEP_TIME;
+			distance[i] = walker.getDistance();
+			state[i] = MOVE;
+		}
+		return count;
+	}
+
+	/**
+	 * Compute step of every walker toward its target, walkers within their distance arrive.
+	 */
+	private void integrate(int count)
+	{
+		for(int i = 0; i < count; i++)
+		{
+			if(state[i] == SKIP)
+				continue;
+
+			float vx = targetX[i] - x[i];
+			float vy = targetY[i] - y[i];
+			float vz = targetZ[i] - z[i];
+			float distSquared = vx * vx + vy * vy + vz * vz;
+			if(distSquared <= distance[i] * distance[i])
+			{
+				state[i] = ARRIVE;
+				continue;
+			}
+
+			float factor = (float) (speed[i] / Math.sqrt(distSquared));
+			dx[i] = vx * factor;
+			dy[i] = vy * factor;
+			dz[i] = vz * factor;
+			heading[i] = (byte) (Math.toDegrees(Math.atan2(dy[i], dx[i])) / 3);
+		}
+	}
+
+	/**
+	 * Apply new positions.
+	 */
+	private int apply(int count)
+	{
+		int moved = 0;
+		for(int i = 0; i < count; i++)
+		{
+			if(state[i] != MOVE)
+				continue;
+			/** walker could be stopped since prepare */
+			if(stepMovers[i].index < 0)
+			{
+				state[i] = SKIP;
+				continue;
+			}
+
+			flags[i] = stepMovers[i].walker.onStep(x[i] + dx[i], y[i] + dy[i], z[i] + dz[i], heading[i]);
+			moved++;
+		}
+		return moved;
+	}
+
+	/**
+	 * Send movement packets and update known lists after all positions were applied.
+	 */
+	private void broadcast(int count)
+	{
+		for(int i = 0; i < count; i++)
+		{
+			Mover mover = stepMovers[i];
+			stepMovers[i] = null;
+			if(mover.index < 0)
+				continue;
+
+			Walker walker = mover.walker;
+			switch(state[i])
+			{
+				case MOVE:
+					if((flags[i] & STEP_DIRECTION) != 0)
+						walker.onDirectionChanged(x[i], y[i], z[i], dx[i] / STEP_TIME, dy[i] / STEP_TIME, heading[i]);
+					if((flags[i] & STEP_KNOWNLIST) != 0)
+						updateKnownList(walker.getOwner());
+					break;
+				case ARRIVE:
+					walker.onArrived();
+					break;
+			}
+		}
+	}
+
+	private void updateKnownList(VisibleObject owner)
+	{
+		MapRegion region = owner.getActiveRegion();
+		if(region != null)
+			region.getParent().updateKnownList(owner);
+	}
+
+	private void resize(int capacity)
+	{
+		stepMovers = new Mover[capacity];
+		x = new float[capacity];
+		y = new float[capacity];
+		z = new float[capacity];
+		targetX = new float[capacity];
+		targetY = new float[capacity];
+		targetZ = new float[capacity];
+		speed = new float[capacity];
+		distance = new float[capacity];
+		dx = new float[capacity];
+		dy = new float[capacity];
+		dz = new float[capacity];
+		heading = new byte[capacity];
+		state = new byte[capacity];
+		flags = new int[capacity];
+	}
+}
@@ -0,0 +1,213 @@
+/*
+ * This file is part of aion-emu <aion-emu.com>.
+ *
+ *  aion-emu is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-emu is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-emu.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.world;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.aionemu.gameserver.configs.main.GSConfig;
+import com.aionemu.gameserver.model.gameobjects.VisibleObject;
+import com.aionemu.gameserver.model.gameobjects.player.Player;
+import com.aionemu.gameserver.utils.MathUtil;
+
+/**
+ * Known list of player. In crowded places player knows only other players that are nearest to him, up to
+ * {@link GSConfig#VISIBLE_PLAYERS_LIMIT}, and players that are his group or legion members or his target. Known lists
+ * stay symmetric: two players know each other only if both of them accept each other.
+ * 
+ * @author ATracer
+ */
+public class PlayerKnownList extends KnownList
+{
+	/**
+	 * Players that are already known are forgotten only when they are farther than crowd range multiplied by this, so
+	 * players near the edge of crowd range don't appear and disappear on every update.
+	 */
+	private static final float		CROWD_HYSTERESIS	= 1.2f;
+
+	/**
+	 * Number of players that weren't known or were forgotten because of the limit.
+	 */
+	private static final AtomicLong	culledPlayers		= new AtomicLong();
+
+	/**
+	 * Squared distance of farthest player that may be known, Float.MAX_VALUE if there are fewer players in visibility
+	 * range than the limit.
+	 */
+	private volatile float			crowdRangeSquared	= Float.MAX_VALUE;
+
+	/**
+	 * Max heap of squared distances of nearest players found by crowd range update, reused by every update.
+	 */
+	private float[]					nearest				= new float[0];
+
+	/**
+	 * @param owner
+	 */
+	public PlayerKnownList(Player owner)
+	{
+		super(owner);
+	}
+
+	@Override
+	public void doUpdate()
+	{
+		updateCrowdRange();
+		super.doUpdate();
+	}
+
+	/**
+	 * Find squared distance of the n-th nearest player in visibility range, where n is the limit of visible players.
+	 * Only the n nearest distances are kept in a max heap, so the update takes O(players * log n) without allocation.
+	 */
+	private synchronized void updateCrowdRange()
+	{
+		int limit = GSConfig.VISIBLE_PLAYERS_LIMIT;
+		if(limit <= 0 || owner == null || !owner.isSpawned())
+		{
+			crowdRangeSquared = Float.MAX_VALUE;
+			return;
+		}
+
+		if(nearest.length != limit)
+			nearest = new float[limit];
+		float[] heap = nearest;
+		int count = 0;
+		boolean crowded = false;
+
+		MapRegion ownerRegion = owner.getActiveRegion();
+		Iterator<MapRegion> neighboursIt = ownerRegion.getNeighboursIterator();
+		while(neighboursIt.hasNext())
+		{
+			MapRegion r = neighboursIt.next();
+			if(r != ownerRegion && !r.isInRange(owner.getX(), owner.getY(), VisibilityDistance))
+				continue;
+
+			Collection<VisibleObject> objects = r.getObjects();
+			for(VisibleObject object : objects)
+			{
+				if(object == owner || !(object instanceof Player) || !checkObjectInRange(owner, object))
+					continue;
+
+				float distance = distanceSquared(object);
+				if(count < limit)
+					siftUp(heap, count++, distance);
+				else
+				{
+					crowded = true;
+					if(distance < heap[0])
+						siftDown(heap, limit, distance);
+				}
+			}
+		}
+
+		crowdRangeSquared = crowded ? heap[0] : Float.MAX_VALUE;
+	}
+
+	/**
+	 * Add value to max heap at given free index.
+	 */
+	private static void siftUp(float[] heap, int index, float value)
+	{
+		while(index > 0)
+		{
+			int parent = (index - 1) >>> 1;
+			if(heap[parent] >= value)
+				break;
+			heap[index] = heap[parent];
+			index = parent;
+		}
+		heap[index] = value;
+	}
+
+	/**
+	 * Replace top of max heap of given size with value.
+	 */
+	private static void siftDown(float[] heap, int size, float value)
+	{
+		int index = 0;
+		int half = size >>> 1;
+		while(index < half)
+		{
+			int child = 2 * index + 1;
+			if(child + 1 < size && heap[child + 1] > heap[child])
+				child++;
+			if(value >= heap[child])
+				break;
+			heap[index] = heap[child];
+			index = child;
+		}
+		heap[index] = value;
+	}
+
+	@Override
+	protected boolean canSee(VisibleObject object)
+	{
+		if(crowdRangeSquared == Float.MAX_VALUE || !(object instanceof Player) || isImportant((Player) object))
+			return true;
+
+		if(distanceSquared(object) <= crowdRangeSquared)
+			return true;
+
+		culledPlayers.incrementAndGet();
+		return false;
+	}
+
+	@Override
+	protected boolean keepsSeeing(VisibleObject object)
+	{
+		if(crowdRangeSquared == Float.MAX_VALUE || !(object instanceof Player) || isImportant((Player) object))
+			return true;
+
+		if(distanceSquared(object) <= crowdRangeSquared * CROWD_HYSTERESIS * CROWD_HYSTERESIS)
+			return true;
+
+		culledPlayers.incrementAndGet();
+		return false;
+	}
+
+	/**
+	 * @param player
+	 * @return true if player is always visible regardless of the limit.
+	 */
+	private boolean isImportant(Player player)
+	{
+		Player self = (Player) owner;
+		if(self.getTarget() == player || player.getTarget() == self)
+			return true;
+
+		if(self.isInGroup() && self.getPlayerGroup() == player.getPlayerGroup())
+			return true;
+
+		return self.getLegionMember() != null && player.getLegionMember() != null
+			&& self.getLegion().getLegionId() == player.getLegion().getLegionId();
+	}
+
+	private float distanceSquared(VisibleObject object)
+	{
+		return MathUtil.getDistanceSquared(owner, object.getX(), object.getY(), object.getZ());
+	}
+
+	/**
+	 * @return Number of players that weren't known or were forgotten because of the limit of visible players.
+	 */
+	public static long getCulledPlayers()
+	{
+		return culledPlayers.get();
+	}
+}
@@ -58,11 +58,15 @@ public class StaticObjectKnownList extends KnownList
 		if(owner == null || !owner.isSpawned())
 			return;
 		
-		Iterator<MapRegion> neighboursIt = owner.getActiveRegion().getNeighboursIterator();
+		MapRegion ownerRegion = owner.getActiveRegion();
+		Iterator<MapRegion> neighboursIt = ownerRegion.getNeighboursIterator();
 
 		while(neighboursIt.hasNext())
 		{
 			MapRegion r = neighboursIt.next();
+			if(r != ownerRegion && !r.isInRange(owner.getX(), owner.getY(), VisibilityDistance))
+				continue;
+
 			Collection<VisibleObject> objects = r.getObjects();
 
 			for(VisibleObject newObject : objects)
@@ -30,6 +30,7 @@ import com.aionemu.gameserver.model.gameobjects.Npc;
 import com.aionemu.gameserver.model.gameobjects.VisibleObject;
 import com.aionemu.gameserver.model.gameobjects.player.Player;
 import com.aionemu.gameserver.model.templates.WorldMapTemplate;
+import com.aionemu.gameserver.utils.collections.ConcurrentIntObjectMap;
 import com.aionemu.gameserver.utils.idfactory.IDFactory;
 import com.aionemu.gameserver.utils.idfactory.IDFactoryAionObject;
 import com.aionemu.gameserver.world.container.PlayerContainer;
@@ -62,7 +63,7 @@ public class World
 	/**
 	 * Container with all AionObjects in the world [ie Players, Npcs etc]
 	 */
-	private final Map<Integer, AionObject>	allObjects	= new FastMap<Integer, AionObject>().shared();
+	private final ConcurrentIntObjectMap<AionObject>	allObjects	= new ConcurrentIntObjectMap<AionObject>();
 	/**
 	 * World maps supported by server.
 	 */
@@ -133,7 +134,7 @@ public class World
 	 */
 	public Iterator<AionObject> getObjectsIterator()
 	{
-		return allObjects.values().iterator();
+		return allObjects.iterator();
 	}
 
 	/**
@@ -232,15 +233,14 @@ public class World
 
 		if(newRegion != oldRegion)
 		{
-			oldRegion.remove(object);
+			/** add before remove, so regions that neighbour both don't turn dormant for a moment */
 			newRegion.add(object);
+			oldRegion.remove(object);
 			object.getPosition().setMapRegion(newRegion);
 		}
 		
 		if(updateKnownList)
-		{
-			object.updateKnownlist();
-		}
+			newRegion.getParent().updateKnownList(object);
 	}
 
 	/**
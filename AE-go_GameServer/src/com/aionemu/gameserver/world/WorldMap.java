@@ -63,6 +63,16 @@ public class WorldMap
 		return worldMapTemplate.getName();
 	}
 	
+	/**
+	 * Returns size of regions this map is divided to
+	 * @return region size
+	 */
+	public int getCellSize()
+	{
+		int cellSize = worldMapTemplate.getCellSize();
+		return cellSize > 0 ? cellSize : WorldMapInstance.DEFAULT_CELL_SIZE;
+	}
+
 	/**
 	 * Returns water level on map
 	 * @return water level
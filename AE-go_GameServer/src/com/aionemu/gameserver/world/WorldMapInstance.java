@@ -16,17 +16,22 @@
  */
 package com.aionemu.gameserver.world;
 
-import java.util.Collections;
 import java.util.Iterator;
-import java.util.Map;
-import java.util.Set;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-import javolution.util.FastMap;
-
+import com.aionemu.commons.utils.concurrent.SerialExecutor;
+import com.aionemu.gameserver.configs.main.TaskManagerConfig;
+import com.aionemu.gameserver.configs.main.ThreadConfig;
 import com.aionemu.gameserver.model.gameobjects.AionObject;
 import com.aionemu.gameserver.model.gameobjects.VisibleObject;
 import com.aionemu.gameserver.model.gameobjects.player.Player;
+import com.aionemu.gameserver.taskmanager.tasks.KnownListUpdater;
+import com.aionemu.gameserver.utils.ThreadPoolManager;
+import com.aionemu.gameserver.utils.collections.ConcurrentIntObjectMap;
 import com.aionemu.gameserver.world.exceptions.DuplicateAionObjectException;
 
 /**
@@ -38,9 +43,9 @@ import com.aionemu.gameserver.world.exceptions.DuplicateAionObjectException;
 public class WorldMapInstance
 {
 	/**
-	 * Size of region
+	 * Default size of region, about visibility distance so known list update scans only few small regions.
 	 */
-	public static final int						regionSize			= 500;
+	public static final int						DEFAULT_CELL_SIZE	= 100;
 	/**
 	 * Max world size - actually it must be some value bigger than world size. Used only for id generation.
 	 */
@@ -49,22 +54,31 @@ public class WorldMapInstance
 	 * WorldMap witch is parent of this instance.
 	 */
 	private final WorldMap						parent;
+	/**
+	 * Size of region
+	 */
+	private final int							regionSize;
+	/**
+	 * Regions up to this number of regions away in each direction are neighbours, so all regions that may contain
+	 * visible objects are among neighbours.
+	 */
+	private final int							neighbourRange;
 	/**
 	 * Map of active regions.
 	 */
-	private final Map<Integer, MapRegion>		regions				= new FastMap<Integer, MapRegion>().shared();
+	private final ConcurrentIntObjectMap<MapRegion>		regions				= new ConcurrentIntObjectMap<MapRegion>();
 
 	/**
 	 * All objects spawned in this world map instance
 	 */
-	private final Map<Integer, VisibleObject>	worldMapObjects		= new FastMap<Integer, VisibleObject>().shared();
+	private final ConcurrentIntObjectMap<VisibleObject>	worldMapObjects		= new ConcurrentIntObjectMap<VisibleObject>();
 
 	/**
 	 * All players spawned in this world map instance
 	 */
-	private final Map<Integer, Player>			worldMapPlayers		= new FastMap<Integer, Player>().shared();
+	private final ConcurrentIntObjectMap<Player>			worldMapPlayers		= new ConcurrentIntObjectMap<Player>();
 
-	private final Set<Integer>					registeredObjects	= Collections.newSetFromMap(new FastMap<Integer, Boolean>().shared());
+	private final ConcurrentIntObjectMap<Boolean>		registeredObjects	= new ConcurrentIntObjectMap<Boolean>();
 
 	/**
 	 * Id of this instance (channel)
@@ -74,15 +88,82 @@ public class WorldMapInstance
 	 * Destroy task of this instance
 	 */
 	private Future<?>							destroyTask;
+	/**
+	 * Known lists of objects that moved since last update.
+	 */
+	private final Queue<KnownList>				knownListUpdates	= new ConcurrentLinkedQueue<KnownList>();
+	/**
+	 * True if this instance is waiting to be processed by KnownListUpdater.
+	 */
+	private final AtomicBoolean					knownListUpdateScheduled	= new AtomicBoolean();
+	/**
+	 * Executor that runs tasks of objects of this instance one at a time, null if map executors are disabled.
+	 */
+	private final SerialExecutor				executor;
+	/**
+	 * Moves walking objects of this instance.
+	 */
+	private final MovementIntegrator			movementIntegrator	= new MovementIntegrator(this);
 	/**
 	 * Constructor.
 	 *
 	 * @param parent
 	 */
 	public WorldMapInstance(WorldMap parent, int instanceId)
+	{
+		this(parent, instanceId, parent.getCellSize());
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param parent
+	 * @param instanceId
+	 * @param regionSize
+	 */
+	WorldMapInstance(WorldMap parent, int instanceId, int regionSize)
 	{
 		this.parent = parent;
 		this.instanceId = instanceId;
+		this.regionSize = regionSize;
+		this.neighbourRange = (KnownList.VisibilityDistance + regionSize - 1) / regionSize;
+		this.executor = ThreadConfig.MAP_EXECUTORS ? new SerialExecutor(new Executor(){
+			@Override
+			public void execute(Runnable task)
+			{
+				ThreadPoolManager.getInstance().execute(task);
+			}
+		}) : null;
+	}
+
+	/**
+	 * Run task on executor of this instance, or directly if map executors are disabled or current thread already runs
+	 * tasks of this instance.
+	 * 
+	 * @param task
+	 */
+	public void execute(Runnable task)
+	{
+		if(executor == null || executor.isCurrentThread())
+			task.run();
+		else
+			executor.execute(task);
+	}
+
+	/**
+	 * @return Executor of this instance or null if map executors are disabled.
+	 */
+	public Executor getExecutor()
+	{
+		return executor;
+	}
+
+	/**
+	 * @return integrator moving walking objects of this instance.
+	 */
+	public MovementIntegrator getMovementIntegrator()
+	{
+		return movementIntegrator;
 	}
 
 	/**
@@ -162,15 +243,15 @@ public class WorldMapInstance
 	 */
 	private MapRegion createMapRegion(int regionId)
 	{
-		MapRegion r = new MapRegion(regionId, this);
-		regions.put(regionId, r);
-
 		int rx = regionId / maxWorldSize;
 		int ry = regionId % maxWorldSize;
 
-		for(int x = rx - 1; x <= rx + 1; x++)
+		MapRegion r = new MapRegion(regionId, this, rx * regionSize, ry * regionSize, regionSize);
+		regions.put(regionId, r);
+
+		for(int x = rx - neighbourRange; x <= rx + neighbourRange; x++)
 		{
-			for(int y = ry - 1; y <= ry + 1; y++)
+			for(int y = ry - neighbourRange; y <= ry + neighbourRange; y++)
 			{
 				if(x == rx && y == ry)
 					continue;
@@ -187,6 +268,14 @@ public class WorldMapInstance
 		return r;
 	}
 
+	/**
+	 * @return size of regions of this instance.
+	 */
+	public int getRegionSize()
+	{
+		return regionSize;
+	}
+
 	/**
 	 * Returs {@link World} instance to which belongs this WorldMapInstance
 	 * @return World
@@ -220,6 +309,58 @@ public class WorldMapInstance
 			worldMapPlayers.remove(object.getObjectId());
 	}
 
+	/**
+	 * Queue known list update of object that moved in this instance, it will be done by {@link KnownListUpdater}
+	 * together with other objects of this instance.
+	 * 
+	 * @param knownList
+	 */
+	void queueKnownListUpdate(KnownList knownList)
+	{
+		if(!knownList.markUpdateQueued())
+			return;
+
+		knownListUpdates.offer(knownList);
+		if(knownListUpdateScheduled.compareAndSet(false, true))
+			KnownListUpdater.getInstance().add(this);
+	}
+
+	/**
+	 * Update known list of object that moved in this instance, right away or together with other moved objects,
+	 * depending on configuration.
+	 * 
+	 * @param object
+	 */
+	void updateKnownList(VisibleObject object)
+	{
+		if(TaskManagerConfig.KNOWNLIST_UPDATE_INTERVAL > 0)
+			queueKnownListUpdate(object.getKnownList());
+		else
+			object.getKnownList().doMoveUpdate();
+	}
+
+	/**
+	 * Update known lists of objects that moved in this instance since last update. Objects of one instance are updated
+	 * by one thread at a time, so they don't compete for the same known lists.
+	 */
+	public void updateKnownLists()
+	{
+		synchronized(knownListUpdates)
+		{
+			/** cleared before draining, so known list queued after this point queues instance again */
+			knownListUpdateScheduled.set(false);
+			for(KnownList knownList; (knownList = knownListUpdates.poll()) != null;)
+			{
+				knownList.clearUpdateQueued();
+
+				VisibleObject owner = knownList.getOwner();
+				/** object could be despawned or teleported to another instance meanwhile */
+				if(owner.isSpawned() && owner.getActiveRegion().getParent() == this)
+					knownList.doMoveUpdate();
+			}
+		}
+	}
+
 	/**
 	 * @return the instanceIndex
 	 */
@@ -260,7 +401,7 @@ public class WorldMapInstance
 	 */
 	public Iterator<VisibleObject> objectIterator()
 	{
-		return worldMapObjects.values().iterator();
+		return worldMapObjects.iterator();
 	}
 	
 	/**
@@ -268,7 +409,7 @@ public class WorldMapInstance
 	 */
 	public Iterator<Player> playerIterator()
 	{
-		return worldMapPlayers.values().iterator();
+		return worldMapPlayers.iterator();
 	}
 	
 	/**
@@ -276,7 +417,7 @@ public class WorldMapInstance
 	 */
 	public void register(int objectId)
 	{
-		registeredObjects.add(objectId);
+		registeredObjects.put(objectId, Boolean.TRUE);
 	}
 
 	/**
@@ -285,6 +426,6 @@ public class WorldMapInstance
 	 */
 	public boolean isRegistered(int objectId)
 	{
-		return registeredObjects.contains(objectId);
+		return registeredObjects.containsKey(objectId);
 	}
 }
@@ -0,0 +1,148 @@
+/*
+ * This file is part of aion-emu <aion-emu.com>.
+ *
+ *  aion-emu is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-emu is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-emu.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.world.zone;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Uniform grid over bounding boxes of zones of one map. Every cell holds zones whose bounding box overlaps it, in the
+ * same order as they were given, so lookup only runs polygon test for few zones near the point and still respects
+ * zone priority.
+ * 
+ * @author ATracer
+ * 
+ */
+public class ZoneIndex
+{
+	private static final ZoneInstance[]	EMPTY	= new ZoneInstance[0];
+
+	private final int					cellSize;
+	private final float					originX;
+	private final float					originY;
+	private final int					width;
+	private final int					height;
+
+	/**
+	 * Zones overlapping each cell, row by row.
+	 */
+	private final ZoneInstance[][]		cells;
+
+	/**
+	 * @param zones
+	 *            zones of one map in priority order
+	 * @param cellSize
+	 */
+	public ZoneIndex(Collection<ZoneInstance> zones, int cellSize)
+	{
+		this.cellSize = cellSize;
+
+		float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+		float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+		for(ZoneInstance zone : zones)
+		{
+			minX = Math.min(minX, zone.getMinX());
+			minY = Math.min(minY, zone.getMinY());
+			maxX = Math.max(maxX, zone.getMaxX());
+			maxY = Math.max(maxY, zone.getMaxY());
+		}
+
+		if(zones.isEmpty())
+		{
+			originX = originY = 0;
+			width = height = 0;
+			cells = new ZoneInstance[0][];
+			return;
+		}
+
+		originX = minX;
+		originY = minY;
+		width = cellOf(maxX, originX) + 1;
+		height = cellOf(maxY, originY) + 1;
+
+		List<List<ZoneInstance>> cellLists = new ArrayList<List<ZoneInstance>>(width * height);
+		for(int i = 0; i < width * height; i++)
+			cellLists.add(new ArrayList<ZoneInstance>(2));
+
+		for(ZoneInstance zone : zones)
+		{
+			int x1 = cellOf(zone.getMinX(), originX), x2 = cellOf(zone.getMaxX(), originX);
+			int y1 = cellOf(zone.getMinY(), originY), y2 = cellOf(zone.getMaxY(), originY);
+			for(int y = y1; y <= y2; y++)
+			{
+				for(int x = x1; x <= x2; x++)
+					cellLists.get(y * width + x).add(zone);
+			}
+		}
+
+		cells = new ZoneInstance[width * height][];
+		for(int i = 0; i < cells.length; i++)
+		{
+			List<ZoneInstance> list = cellLists.get(i);
+			cells[i] = list.isEmpty() ? EMPTY : list.toArray(new ZoneInstance[list.size()]);
+		}
+	}
+
+	private int cellOf(float coordinate, float origin)
+	{
+		return (int) ((coordinate - origin) / cellSize);
+	}
+
+	/**
+	 * @param x
+	 * @param y
+	 * @return zones whose bounding box may contain given point, in priority order. Returned array must not be
+	 *         modified.
+	 */
+	public ZoneInstance[] getCandidates(float x, float y)
+	{
+		if(x < originX || y < originY)
+			return EMPTY;
+
+		int cx = cellOf(x, originX);
+		int cy = cellOf(y, originY);
+		if(cx >= width || cy >= height)
+			return EMPTY;
+
+		return cells[cy * width + cx];
+	}
+
+	/**
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @return first zone in priority order that contains given point or null
+	 */
+	public ZoneInstance findZone(float x, float y, float z)
+	{
+		for(ZoneInstance zone : getCandidates(x, y))
+		{
+			if(zone.isInside(x, y, z))
+				return zone;
+		}
+		return null;
+	}
+
+	/**
+	 * @return number of cells of this index
+	 */
+	public int getCellCount()
+	{
+		return cells.length;
+	}
+}
@@ -31,6 +31,14 @@ public class ZoneInstance
 	private float						xCoordinates[];
 	private float						yCoordinates[];
 
+	/**
+	 * Bounding box of zone polygon, points outside of it are rejected without polygon test.
+	 */
+	private float						minX;
+	private float						maxX;
+	private float						minY;
+	private float						maxY;
+
 	private ZoneTemplate				template;
 
 	private Collection<ZoneInstance>	neighbors;
@@ -41,14 +49,62 @@ public class ZoneInstance
 		this.corners = template.getPoints().getPoint().size();
 		xCoordinates = new float[corners];
 		yCoordinates = new float[corners];
+		minX = minY = Float.MAX_VALUE;
+		maxX = maxY = -Float.MAX_VALUE;
 		for(int i = 0; i < corners; i++)
 		{
 			Point2D point = template.getPoints().getPoint().get(i);
 			xCoordinates[i] = point.getX();
 			yCoordinates[i] = point.getY();
+			minX = Math.min(minX, point.getX());
+			maxX = Math.max(maxX, point.getX());
+			minY = Math.min(minY, point.getY());
+			maxY = Math.max(maxY, point.getY());
 		}
 	}
 
+	/**
+	 * Main algorithm that analyzes point-in-polygon, bounding box and z range are checked first
+	 * 
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @return true if point is inside this zone
+	 */
+	public boolean isInside(float x, float y, float z)
+	{
+		if(x < minX || x > maxX || y < minY || y > maxY)
+			return false;
+
+		float top = getTop();
+		float bottom = getBottom();
+
+		// first z coordinate is checked
+		if(top != 0 || bottom != 0)// not defined
+		{
+			if(z > top || z < bottom)
+				return false;
+		}
+
+		int i, j = corners - 1;
+		boolean inside = false;
+
+		for(i = 0; i < corners; i++)
+		{
+			if(yCoordinates[i] < y && yCoordinates[j] >= y || yCoordinates[j] < y && yCoordinates[i] >= y)
+			{
+				if(xCoordinates[i] + (y - yCoordinates[i]) / (yCoordinates[j] - yCoordinates[i])
+					* (xCoordinates[j] - xCoordinates[i]) < x)
+				{
+					inside = !inside;
+				}
+			}
+			j = i;
+		}
+
+		return inside;
+	}
+
 	/**
 	 * @return the corners
 	 */
@@ -73,6 +129,38 @@ public class ZoneInstance
 		return yCoordinates;
 	}
 
+	/**
+	 * @return the minX
+	 */
+	public float getMinX()
+	{
+		return minX;
+	}
+
+	/**
+	 * @return the maxX
+	 */
+	public float getMaxX()
+	{
+		return maxX;
+	}
+
+	/**
+	 * @return the minY
+	 */
+	public float getMinY()
+	{
+		return minY;
+	}
+
+	/**
+	 * @return the maxY
+	 */
+	public float getMaxY()
+	{
+		return maxY;
+	}
+
 	/**
 	 * @return the neighbours
 	 */
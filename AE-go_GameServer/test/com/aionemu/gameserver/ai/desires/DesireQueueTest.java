@@ -0,0 +1,177 @@
+/*
+ * This file is part of aion-emu <aion-emu.com>.
+ *
+ *  aion-emu is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-emu is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-emu.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.ai.desires;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.aionemu.gameserver.ai.AI;
+
+/**
+ * Checks order and handling of desires in {@link DesireQueue}.
+ * 
+ * @author ATracer
+ */
+public class DesireQueueTest
+{
+	@Test
+	public void testOrderAndMerge()
+	{
+		DesireQueue queue = new DesireQueue();
+		TestDesire low = new TestDesire(1, 10);
+		TestDesire high = new TestDesire(2, 30);
+		TestDesire middle = new TestDesire(3, 20);
+		queue.addDesire(low);
+		queue.addDesire(high);
+		queue.addDesire(middle);
+		Assert.assertEquals(3, queue.size());
+		Assert.assertSame(high, queue.peek());
+
+		/** equal desire replaces old one and takes its power */
+		TestDesire lowAgain = new TestDesire(1, 25);
+		queue.addDesire(lowAgain);
+		Assert.assertEquals(3, queue.size());
+		Assert.assertEquals(35, lowAgain.getDesirePower());
+		Assert.assertFalse(queue.removeDesire(new TestDesire(4, 0)));
+		Assert.assertTrue(queue.contains(new TestDesire(1, 0)));
+
+		Assert.assertSame(lowAgain, queue.poll());
+		Assert.assertSame(high, queue.poll());
+		Assert.assertTrue(queue.removeDesire(new TestDesire(3, 0)));
+		Assert.assertTrue(queue.isEmpty());
+		Assert.assertNull(queue.poll());
+	}
+
+	@Test
+	public void testHandleDesires()
+	{
+		DesireQueue queue = new DesireQueue();
+		TestDesire everyTick = new TestDesire(1, 10);
+		TestDesire everySecondTick = new TestDesire(2, 20);
+		everySecondTick.interval = 2;
+		TestDesire failing = new TestDesire(3, 30);
+		failing.result = false;
+		queue.addDesire(everyTick);
+		queue.addDesire(everySecondTick);
+		queue.addDesire(failing);
+
+		for(int i = 0; i < 4; i++)
+			queue.handleDesires(null);
+
+		Assert.assertEquals(4, everyTick.handled);
+		Assert.assertEquals(2, everySecondTick.handled);
+		Assert.assertEquals(1, failing.handled);
+		Assert.assertTrue(failing.cleared);
+		Assert.assertEquals(2, queue.size());
+	}
+
+	@Test
+	public void testClearWhileHandling()
+	{
+		final DesireQueue queue = new DesireQueue();
+		TestDesire clearing = new TestDesire(1, 30){
+			@Override
+			public boolean handleDesire(AI<?> ai)
+			{
+				super.handleDesire(ai);
+				queue.clear();
+				queue.addDesire(new TestDesire(5, 5));
+				return true;
+			}
+		};
+		TestDesire other = new TestDesire(2, 10);
+		queue.addDesire(clearing);
+		queue.addDesire(other);
+
+		queue.handleDesires(null);
+		Assert.assertEquals(1, clearing.handled);
+		Assert.assertEquals(0, other.handled);
+		Assert.assertTrue(other.cleared);
+		Assert.assertEquals(1, queue.size());
+	}
+
+	@Test
+	public void testFullQueue()
+	{
+		DesireQueue queue = new DesireQueue();
+		TestDesire weakest = new TestDesire(0, 1);
+		queue.addDesire(weakest);
+		for(int i = 1; i < DesireQueue.MAX_DESIRES; i++)
+			queue.addDesire(new TestDesire(i, 10 + i));
+		Assert.assertEquals(DesireQueue.MAX_DESIRES, queue.size());
+
+		/** weaker desire is not added, stronger one drops the weakest */
+		TestDesire weaker = new TestDesire(100, 0);
+		queue.addDesire(weaker);
+		Assert.assertTrue(weaker.cleared);
+		Assert.assertFalse(queue.contains(weaker));
+
+		TestDesire stronger = new TestDesire(101, 100);
+		queue.addDesire(stronger);
+		Assert.assertTrue(weakest.cleared);
+		Assert.assertFalse(queue.contains(weakest));
+		Assert.assertSame(stronger, queue.peek());
+		Assert.assertEquals(DesireQueue.MAX_DESIRES, queue.size());
+	}
+
+	private static class TestDesire extends AbstractDesire
+	{
+		private final int	key;
+		private int			interval	= 1;
+		private boolean		result		= true;
+		private int			handled;
+		private boolean		cleared;
+
+		private TestDesire(int key, int desirePower)
+		{
+			super(desirePower);
+			this.key = key;
+		}
+
+		@Override
+		public boolean handleDesire(AI<?> ai)
+		{
+			handled++;
+			return result;
+		}
+
+		@Override
+		public int getExecutionInterval()
+		{
+			return interval;
+		}
+
+		@Override
+		public void onClear()
+		{
+			cleared = true;
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			return o instanceof TestDesire && ((TestDesire) o).key == key;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return key;
+		}
+	}
+}
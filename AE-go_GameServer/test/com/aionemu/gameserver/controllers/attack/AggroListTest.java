@@ -0,0 +1,301 @@
+/*
+ * This file is part of aion-emu <aion-emu.com>.
+ *
+ *  aion-emu is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-emu is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-emu.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.controllers.attack;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aionemu.gameserver.ai.npcai.DummyAi;
+import com.aionemu.gameserver.model.gameobjects.AionObject;
+import com.aionemu.gameserver.model.gameobjects.Creature;
+import com.aionemu.gameserver.model.gameobjects.stats.CreatureLifeStats;
+import com.aionemu.gameserver.world.KnownList;
+import com.aionemu.gameserver.world.WorldPosition;
+
+/**
+ * Checks that {@link AggroList} keeps the most hated attacker while hate is raised, lowered and attackers are removed,
+ * and that dead or unknown attackers are skipped.
+ * 
+ * @author ATracer
+ */
+public class AggroListTest
+{
+	private TestCreature	owner;
+	private AggroList		aggroList;
+	private TestCreature	a, b, c;
+
+	@Before
+	public void setUp()
+	{
+		owner = new TestCreature(1);
+		aggroList = new AggroList(owner);
+		a = owner.meet(new TestCreature(2));
+		b = owner.meet(new TestCreature(3));
+		c = owner.meet(new TestCreature(4));
+	}
+
+	@Test
+	public void testAdd()
+	{
+		Assert.assertNull(aggroList.getMostHated());
+
+		aggroList.addDamage(a, 10);
+		Assert.assertEquals(1, aggroList.size());
+		Assert.assertEquals(10, aggroList.getDamage(a));
+		Assert.assertEquals(10, aggroList.getHate(a));
+		Assert.assertSame(a, aggroList.getMostHated());
+
+		aggroList.addHate(b, 5);
+		Assert.assertEquals(2, aggroList.size());
+		Assert.assertEquals(0, aggroList.getDamage(b));
+		Assert.assertEquals(5, aggroList.getHate(b));
+		Assert.assertSame(a, aggroList.getMostHated());
+		Assert.assertTrue(aggroList.isMostHated(a));
+		Assert.assertFalse(aggroList.isMostHated(b));
+
+		/** only attackers that are already in the list are notified */
+		aggroList.notifyHate(c, 100);
+		Assert.assertEquals(2, aggroList.size());
+		Assert.assertEquals(0, aggroList.getHate(c));
+	}
+
+	@Test
+	public void testRaise()
+	{
+		aggroList.addDamage(a, 10);
+		aggroList.addDamage(b, 5);
+		aggroList.addHate(b, 4);
+		Assert.assertSame(a, aggroList.getMostHated());
+
+		aggroList.notifyHate(b, 2);
+		Assert.assertEquals(11, aggroList.getHate(b));
+		Assert.assertSame(b, aggroList.getMostHated());
+
+		aggroList.addDamage(c, 20);
+		Assert.assertSame(c, aggroList.getMostHated());
+	}
+
+	@Test
+	public void testLowerTop()
+	{
+		aggroList.addHate(a, 30);
+		aggroList.addHate(b, 20);
+		aggroList.addHate(c, 10);
+
+		aggroList.addHate(a, -15);
+		Assert.assertEquals(15, aggroList.getHate(a));
+		Assert.assertSame(b, aggroList.getMostHated());
+
+		/** hate never drops below 1 by added hate */
+		aggroList.addHate(b, -100);
+		Assert.assertEquals(1, aggroList.getHate(b));
+		Assert.assertSame(a, aggroList.getMostHated());
+
+		aggroList.stopHating(a);
+		Assert.assertEquals(0, aggroList.getHate(a));
+		Assert.assertSame(c, aggroList.getMostHated());
+
+		aggroList.stopHating(c);
+		aggroList.stopHating(b);
+		Assert.assertNull(aggroList.getMostHated());
+		Assert.assertEquals(3, aggroList.size());
+	}
+
+	@Test
+	public void testRemoveTop()
+	{
+		aggroList.addHate(a, 30);
+		aggroList.addHate(b, 10);
+		aggroList.addHate(c, 20);
+
+		aggroList.remove(a);
+		Assert.assertEquals(2, aggroList.size());
+		Assert.assertEquals(0, aggroList.getHate(a));
+		Assert.assertSame(c, aggroList.getMostHated());
+
+		aggroList.remove(c);
+		Assert.assertSame(b, aggroList.getMostHated());
+
+		/** removing creature that isn't in the list does nothing */
+		aggroList.remove(a);
+		Assert.assertEquals(1, aggroList.size());
+	}
+
+	@Test
+	public void testRemoveMovesLastSlot()
+	{
+		aggroList.addHate(a, 10);
+		aggroList.addHate(b, 20);
+		aggroList.addHate(c, 30);
+
+		/** c is moved to the slot of a and stays most hated */
+		aggroList.remove(a);
+		Assert.assertSame(c, aggroList.getMostHated());
+		Assert.assertEquals(30, aggroList.getHate(c));
+
+		aggroList.stopHating(c);
+		Assert.assertSame(b, aggroList.getMostHated());
+	}
+
+	@Test
+	public void testRemoveLast()
+	{
+		aggroList.addDamage(a, 10);
+		aggroList.remove(a);
+		Assert.assertEquals(0, aggroList.size());
+		Assert.assertNull(aggroList.getMostHated());
+
+		aggroList.addDamage(b, 5);
+		Assert.assertSame(b, aggroList.getMostHated());
+		aggroList.clear();
+		Assert.assertEquals(0, aggroList.size());
+		Assert.assertNull(aggroList.getMostHated());
+	}
+
+	@Test
+	public void testDeadAttacker()
+	{
+		aggroList.addHate(a, 30);
+		aggroList.addHate(b, 20);
+		aggroList.addHate(c, 10);
+
+		a.lifeStats.dead = true;
+		Assert.assertFalse(aggroList.isMostHated(a));
+		Assert.assertSame(b, aggroList.getMostHated());
+		Assert.assertEquals(0, aggroList.getHate(a));
+		Assert.assertEquals(3, aggroList.size());
+
+		b.lifeStats.dead = true;
+		c.lifeStats.dead = true;
+		Assert.assertNull(aggroList.getMostHated());
+	}
+
+	@Test
+	public void testUnknownAttacker()
+	{
+		aggroList.addHate(a, 30);
+		aggroList.addHate(b, 20);
+
+		owner.forget(a);
+		Assert.assertSame(b, aggroList.getMostHated());
+		Assert.assertEquals(0, aggroList.getHate(a));
+
+		/** attacker that is known again is hated only after new hate */
+		owner.meet(a);
+		Assert.assertSame(b, aggroList.getMostHated());
+		aggroList.addHate(a, 50);
+		Assert.assertSame(a, aggroList.getMostHated());
+
+		owner.forget(a);
+		owner.forget(b);
+		Assert.assertNull(aggroList.getMostHated());
+	}
+
+	/**
+	 * Creature with controllable life and known list, and ai without handlers.
+	 */
+	private static class TestCreature extends Creature
+	{
+		private final TestLifeStats	lifeStats;
+		private final Set<Integer>	known	= new HashSet<Integer>();
+
+		private TestCreature(int objId)
+		{
+			super(objId, null, null, null, new WorldPosition());
+			lifeStats = new TestLifeStats(this);
+			setLifeStats(lifeStats);
+			setKnownlist(new KnownList(this){
+				@Override
+				public boolean knowns(AionObject object)
+				{
+					return known.contains(object.getObjectId());
+				}
+			});
+		}
+
+		private TestCreature meet(TestCreature creature)
+		{
+			known.add(creature.getObjectId());
+			return creature;
+		}
+
+		private void forget(TestCreature creature)
+		{
+			known.remove(creature.getObjectId());
+		}
+
+		@Override
+		public void initializeAi()
+		{
+			ai = new DummyAi();
+			ai.setOwner(this);
+		}
+
+		@Override
+		public byte getLevel()
+		{
+			return 1;
+		}
+
+		@Override
+		public String getName()
+		{
+			return "test";
+		}
+	}
+
+	private static class TestLifeStats extends CreatureLifeStats<TestCreature>
+	{
+		private boolean	dead;
+
+		private TestLifeStats(TestCreature owner)
+		{
+			super(owner, 100, 100);
+		}
+
+		@Override
+		public boolean isAlreadyDead()
+		{
+			return dead;
+		}
+
+		@Override
+		protected void onIncreaseHp()
+		{
+		}
+
+		@Override
+		protected void onReduceHp()
+		{
+		}
+
+		@Override
+		protected void onIncreaseMp()
+		{
+		}
+
+		@Override
+		protected void onReduceMp()
+		{
+		}
+	}
+}
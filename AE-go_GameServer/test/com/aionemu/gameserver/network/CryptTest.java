@@ -0,0 +1,176 @@
+/**
+ * This file is part of aion-emu <aion-emu.com>.
+ *
+ *  aion-emu is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-emu is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-emu.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.network;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Checks that {@link Crypt} gives the same output as the original byte by byte implementation.
+ * 
+ * @author ATracer
+ */
+public class CryptTest
+{
+	private static final int	PACKETS	= 2000;
+
+	@Test
+	public void testEncryptEquivalence()
+	{
+		Random rnd = new Random(7);
+		for(int c = 0; c < 20; c++)
+		{
+			Crypt crypt = new Crypt();
+			ReferenceCrypt ref = new ReferenceCrypt(crypt.enableKey());
+			skipFirstPacket(crypt);
+
+			for(int p = 0; p < PACKETS / 20; p++)
+			{
+				byte[] data = randomPacket(rnd, 1);
+				ByteBuffer buf = wrap(rnd, data);
+
+				ref.encrypt(data);
+				crypt.encrypt(buf);
+
+				assertSame(data, buf);
+			}
+		}
+	}
+
+	@Test
+	public void testDecryptEquivalence()
+	{
+		Random rnd = new Random(11);
+		for(int c = 0; c < 20; c++)
+		{
+			Crypt crypt = new Crypt();
+			ReferenceCrypt ref = new ReferenceCrypt(crypt.enableKey());
+			skipFirstPacket(crypt);
+
+			for(int p = 0; p < PACKETS / 20; p++)
+			{
+				byte[] data = randomPacket(rnd, 3);
+				ByteBuffer buf = wrap(rnd, data);
+
+				ref.decrypt(data);
+				crypt.decrypt(buf);
+
+				assertSame(data, buf);
+			}
+		}
+	}
+
+	/**
+	 * First server packet is never encrypted.
+	 */
+	static void skipFirstPacket(Crypt crypt)
+	{
+		crypt.encrypt(ByteBuffer.allocate(0));
+	}
+
+	private static byte[] randomPacket(Random rnd, int minSize)
+	{
+		byte[] data = new byte[minSize + rnd.nextInt(600)];
+		rnd.nextBytes(data);
+		return data;
+	}
+
+	/**
+	 * Copy data to randomly placed heap or direct buffer with random byte order.
+	 */
+	private static ByteBuffer wrap(Random rnd, byte[] data)
+	{
+		int offset = rnd.nextInt(16);
+		ByteBuffer buf = rnd.nextBoolean() ? ByteBuffer.allocate(offset + data.length + 16) : ByteBuffer
+			.allocateDirect(offset + data.length + 16);
+		buf.position(offset);
+		buf.put(data);
+		buf.position(offset);
+		buf.limit(offset + data.length);
+		buf = buf.slice();
+		buf.order(rnd.nextBoolean() ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+		return buf;
+	}
+
+	private static void assertSame(byte[] expected, ByteBuffer buf)
+	{
+		Assert.assertEquals(expected.length, buf.remaining());
+		for(int i = 0; i < expected.length; i++)
+			Assert.assertEquals("byte " + i + " of " + expected.length, expected[i], buf.get(i));
+	}
+
+	/**
+	 * Original byte by byte implementation.
+	 */
+	static class ReferenceCrypt
+	{
+		private static byte[]	staticKey	= "nKO/WctQ0AVLbpzfBkS6NevDYT8ourG5CRlmdjyJ72aswx4EPq1UgZhFMXH?3iI9"
+												.getBytes();
+
+		private byte[]			clientPacketKey;
+		private byte[]			serverPacketKey;
+
+		ReferenceCrypt(int falseKey)
+		{
+			int key = (falseKey - 0x3FF2CC87) ^ 0xCD92E451;
+			clientPacketKey = new byte[] { (byte) (key & 0xff), (byte) ((key >> 8) & 0xff),
+				(byte) ((key >> 16) & 0xff), (byte) ((key >> 24) & 0xff), (byte) 0xa1, (byte) 0x6c, (byte) 0x54,
+				(byte) 0x87 };
+			serverPacketKey = clientPacketKey.clone();
+		}
+
+		private void decrypt(byte[] data)
+		{
+			int prev = data[0];
+			data[0] ^= (clientPacketKey[0] & 0xff);
+			for(int i = 1; i < data.length; i++)
+			{
+				int curr = data[i] & 0xff;
+				data[i] ^= (staticKey[i & 63] & 0xff) ^ (clientPacketKey[i & 7] & 0xff) ^ prev;
+				prev = curr;
+			}
+			changeKey(clientPacketKey, data.length);
+		}
+
+		void encrypt(byte[] data)
+		{
+			data[0] ^= (serverPacketKey[0] & 0xff);
+			int prev = data[0];
+			for(int i = 1; i < data.length; i++)
+			{
+				data[i] ^= (staticKey[i & 63] & 0xff) ^ (serverPacketKey[i & 7] & 0xff) ^ prev;
+				prev = data[i];
+			}
+			changeKey(serverPacketKey, data.length);
+		}
+
+		private static void changeKey(byte[] key, int size)
+		{
+			long oldKey = 0;
+			for(int i = 0; i < 8; i++)
+				oldKey |= ((long) key[i] & 0xff) << (i * 8);
+			oldKey += size;
+			for(int i = 0; i < 8; i++)
+				key[i] = (byte) (oldKey >> (i * 8) & 0xff);
+		}
+	}
+}
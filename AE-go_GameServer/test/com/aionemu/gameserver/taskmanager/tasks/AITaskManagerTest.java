@@ -0,0 +1,118 @@
+/*
+ * This file is part of aion-emu <aion-emu.com>.
+ *
+ *  aion-emu is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-emu is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-emu.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.taskmanager.tasks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.aionemu.gameserver.taskmanager.tasks.AITaskManager.AITask;
+
+/**
+ * Checks that {@link AITaskManager} runs every task once per period and handles removals.
+ * 
+ * @author ATracer
+ */
+public class AITaskManagerTest
+{
+	/**
+	 * Runs sweeps on the ticking thread.
+	 */
+	private static final Executor	DIRECT	= new Executor(){
+		@Override
+		public void execute(Runnable command)
+		{
+			command.run();
+		}
+	};
+
+	@Test
+	public void testEveryTaskRunsOncePerPeriod()
+	{
+		AITaskManager manager = new AITaskManager(DIRECT, 3);
+		List<Counter> counters = new ArrayList<Counter>();
+		List<AITask> tasks = new ArrayList<AITask>();
+		for(int i = 0; i < 1000; i++)
+		{
+			Counter counter = new Counter();
+			counters.add(counter);
+			tasks.add(manager.add(counter));
+		}
+		Assert.assertEquals(1000, manager.getTaskCount());
+
+		for(int i = 0; i < AITaskManager.SLOTS * 2; i++)
+			manager.tick();
+		for(Counter counter : counters)
+			Assert.assertEquals(2, counter.runs);
+
+		for(int i = 0; i < 1000; i += 2)
+			manager.remove(tasks.get(i));
+		Assert.assertEquals(500, manager.getTaskCount());
+		Assert.assertFalse(tasks.get(0).isActive());
+		Assert.assertTrue(tasks.get(1).isActive());
+
+		for(int i = 0; i < AITaskManager.SLOTS; i++)
+			manager.tick();
+		for(int i = 0; i < 1000; i++)
+			Assert.assertEquals(i % 2 == 0 ? 2 : 3, counters.get(i).runs);
+
+		/** removing twice does nothing */
+		manager.remove(tasks.get(0));
+		Assert.assertEquals(500, manager.getTaskCount());
+	}
+
+	@Test
+	public void testRemoveWhileSweeping()
+	{
+		final AITaskManager manager = new AITaskManager(DIRECT, 1);
+		final List<AITask> tasks = new ArrayList<AITask>();
+		final Counter counter = new Counter();
+		for(int i = 0; i < AITaskManager.SLOTS * 10; i++)
+		{
+			tasks.add(manager.add(new Runnable(){
+				@Override
+				public void run()
+				{
+					counter.run();
+					/** every task removes all tasks, so only the first one of each slot runs */
+					for(AITask task : tasks)
+						manager.remove(task);
+				}
+			}));
+		}
+
+		for(int i = 0; i < AITaskManager.SLOTS; i++)
+			manager.tick();
+		Assert.assertEquals(1, counter.runs);
+		Assert.assertEquals(0, manager.getTaskCount());
+	}
+
+	private static class Counter implements Runnable
+	{
+		private int	runs;
+
+		@Override
+		public void run()
+		{
+			runs++;
+		}
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * This file is part of aion-emu <aion-emu.com>.
+ *
+ *  aion-emu is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-emu is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-emu.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.utils;
+
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Checks squared distance range checks of {@link MathUtil} against distance based ones.
+ * 
+ * @author ATracer
+ */
+public class MathUtilTest
+{
+	@Test
+	public void testRangeChecks()
+	{
+		Random rnd = new Random(9);
+		for(int i = 0; i < 100000; i++)
+		{
+			float x1 = rnd.nextFloat() * 400, y1 = rnd.nextFloat() * 400, z1 = rnd.nextFloat() * 100;
+			float x2 = rnd.nextFloat() * 400, y2 = rnd.nextFloat() * 400, z2 = rnd.nextFloat() * 100;
+			float range = 1 + rnd.nextFloat() * 200;
+
+			double distance = MathUtil.getDistance(x1, y1, z1, x2, y2, z2);
+			Assert.assertEquals(distance * distance, MathUtil.getDistanceSquared(x1, y1, z1, x2, y2, z2),
+				distance * distance * 1e-5);
+
+			/** skip values that are on the edge of range within float precision */
+			if(Math.abs(distance - range) > 1e-3)
+				Assert.assertEquals(distance < range, MathUtil.isIn3dRange(x1, y1, z1, x2, y2, z2, range));
+
+			double distance2d = Math.sqrt((x2 - x1) * (x2 - x1) + (y2 - y1) * (y2 - y1));
+			if(Math.abs(distance2d - range) > 1e-3)
+				Assert.assertEquals(distance2d < range, MathUtil.isInRange(x1, y1, x2, y2, range));
+		}
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * This file is part of aion-emu <aion-emu.com>.
+ *
+ *  aion-emu is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-emu is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-emu.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.utils.collections;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Checks {@link ConcurrentIntObjectMap} against HashMap and under concurrent reads.
+ * 
+ * @author ATracer
+ */
+public class ConcurrentIntObjectMapTest
+{
+	@Test
+	public void testRandomOperations()
+	{
+		Random rnd = new Random(5);
+		ConcurrentIntObjectMap<Integer> map = new ConcurrentIntObjectMap<Integer>();
+		Map<Integer, Integer> ref = new HashMap<Integer, Integer>();
+
+		for(int i = 0; i < 200000; i++)
+		{
+			int key = rnd.nextInt(2000) - 1000;
+			switch(rnd.nextInt(4))
+			{
+				case 0:
+				case 1:
+					Assert.assertEquals(ref.put(key, i), map.put(key, i));
+					break;
+				case 2:
+					Assert.assertEquals(ref.remove(key), map.remove(key));
+					break;
+				default:
+					Assert.assertEquals(ref.get(key), map.get(key));
+					Assert.assertEquals(ref.containsKey(key), map.containsKey(key));
+			}
+			Assert.assertEquals(ref.size(), map.size());
+		}
+
+		Assert.assertTrue(map.putIfAbsent(5000, 1) == null);
+		Assert.assertEquals(Integer.valueOf(1), map.putIfAbsent(5000, 2));
+		map.remove(5000);
+
+		int count = 0;
+		for(Iterator<Integer> it = map.iterator(); it.hasNext();)
+		{
+			Integer value = it.next();
+			Assert.assertTrue(ref.containsValue(value));
+			count++;
+			if(value % 2 == 0)
+				it.remove();
+		}
+		Assert.assertEquals(ref.size(), count);
+		for(Integer value : map.values())
+			Assert.assertTrue(value % 2 != 0);
+
+		map.clear();
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertFalse(map.iterator().hasNext());
+	}
+
+	@Test
+	public void testConcurrentReads() throws Exception
+	{
+		final ConcurrentIntObjectMap<Integer> map = new ConcurrentIntObjectMap<Integer>();
+		final AtomicReference<String> error = new AtomicReference<String>();
+		final int keys = 10000;
+		for(int i = 0; i < keys; i += 2)
+			map.put(i, i);
+
+		Thread[] readers = new Thread[3];
+		for(int t = 0; t < readers.length; t++)
+		{
+			readers[t] = new Thread(){
+				@Override
+				public void run()
+				{
+					Random rnd = new Random();
+					for(int i = 0; i < 500000 && error.get() == null; i++)
+					{
+						int key = rnd.nextInt(keys);
+						Integer value = map.get(key);
+						/** even keys are never removed */
+						if(key % 2 == 0 && (value == null || value != key))
+							error.set("Lost key " + key);
+						else if(value != null && value != key)
+							error.set("Wrong value for " + key);
+					}
+					for(Integer value : map.values())
+					{
+						if(value == null)
+							error.set("Null value in iteration");
+					}
+				}
+			};
+			readers[t].start();
+		}
+
+		Random rnd = new Random(1);
+		for(int i = 0; i < 200000; i++)
+		{
+			int key = rnd.nextInt(keys / 2) * 2 + 1;
+			if(rnd.nextBoolean())
+				map.put(key, key);
+			else
+				map.remove(key);
+		}
+
+		for(Thread reader : readers)
+			reader.join();
+		Assert.assertNull(error.get(), error.get());
+	}
+}
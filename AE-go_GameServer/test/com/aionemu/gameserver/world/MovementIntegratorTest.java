@@ -0,0 +1,259 @@
+/*
+ * This file is part of aion-emu <aion-emu.com>.
+ *
+ *  aion-emu is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-emu is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-emu.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.world;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.aionemu.gameserver.model.gameobjects.VisibleObject;
+import com.aionemu.gameserver.world.MovementIntegrator.Mover;
+
+/**
+ * Checks steps of {@link MovementIntegrator} and compares them with moving walkers one by one as separate tasks did, on
+ * map crowded with patrolling npcs.
+ * 
+ * @author ATracer
+ */
+public class MovementIntegratorTest
+{
+	private static final int	WALKERS	= 2000;
+	private static final int	STEPS	= 50;
+
+	@Test
+	public void testStepTowardTarget()
+	{
+		WorldMapInstance instance = new WorldMapInstance(null, 1, WorldMapInstance.DEFAULT_CELL_SIZE);
+		MovementIntegrator integrator = instance.getMovementIntegrator();
+
+		TestWalker walker = new TestWalker(instance, 1, 1000, 1000, 1050, 1000);
+		TestWalker near = new TestWalker(instance, 2, 1000, 1000, 1001, 1000);
+		integrator.add(walker);
+		Mover removed = integrator.add(new TestWalker(instance, 3, 1000, 1000, 1050, 1000));
+		integrator.add(near);
+		integrator.remove(removed);
+		Assert.assertEquals(2, integrator.size());
+
+		Assert.assertEquals(1, integrator.step());
+		Assert.assertEquals(1000 + 6 * 0.2f, walker.getOwner().getX(), 0.001f);
+		Assert.assertEquals(1000, walker.getOwner().getY(), 0.001f);
+		Assert.assertEquals(1, walker.directionChanges);
+		Assert.assertEquals(0, walker.arrivals);
+		Assert.assertEquals(1, near.arrivals);
+
+		integrator.step();
+		Assert.assertEquals(1000 + 2 * 6 * 0.2f, walker.getOwner().getX(), 0.001f);
+		Assert.assertEquals(1, walker.directionChanges);
+	}
+
+	@Test
+	public void testSameAsWalkerByWalker()
+	{
+		WorldMapInstance instance = new WorldMapInstance(null, 1, WorldMapInstance.DEFAULT_CELL_SIZE);
+		MovementIntegrator integrator = instance.getMovementIntegrator();
+		List<TestWalker> walkers = createWalkers(instance, WALKERS);
+		for(TestWalker walker : walkers)
+			integrator.add(walker);
+
+		WorldMapInstance oldInstance = new WorldMapInstance(null, 1, WorldMapInstance.DEFAULT_CELL_SIZE);
+		List<TestWalker> oldWalkers = createWalkers(oldInstance, WALKERS);
+
+		for(int i = 0; i < STEPS; i++)
+		{
+			integrator.step();
+			for(TestWalker walker : oldWalkers)
+				walker.move();
+		}
+
+		for(int i = 0; i < walkers.size(); i++)
+		{
+			Assert.assertEquals(oldWalkers.get(i).getOwner().getX(), walkers.get(i).getOwner().getX(), 0.01f);
+			Assert.assertEquals(oldWalkers.get(i).getOwner().getY(), walkers.get(i).getOwner().getY(), 0.01f);
+			Assert.assertEquals(oldWalkers.get(i).arrivals, walkers.get(i).arrivals);
+		}
+	}
+
+	/**
+	 * Walkers patrol between two random points 10 to 60 m apart on 2000 x 2000 area.
+	 */
+	static List<TestWalker> createWalkers(WorldMapInstance instance, int count)
+	{
+		Random rnd = new Random(13);
+		List<TestWalker> walkers = new ArrayList<TestWalker>();
+		for(int i = 0; i < count; i++)
+		{
+			float x = 1000 + rnd.nextFloat() * 2000;
+			float y = 1000 + rnd.nextFloat() * 2000;
+			float angle = rnd.nextFloat() * 6.28f;
+			float length = 10 + rnd.nextFloat() * 50;
+			walkers.add(new TestWalker(instance, i + 1, x, y, x + (float) Math.cos(angle) * length, y
+				+ (float) Math.sin(angle) * length));
+		}
+		return walkers;
+	}
+
+	static class TestWalker implements MovementIntegrator.Walker
+	{
+		private final VisibleObject	owner;
+		private final float			startX, startY;
+		private final float			endX, endY;
+		private float				targetX, targetY;
+		private int					steps;
+		private int					directionChanges;
+		private int					arrivals;
+		private boolean				directionChanged	= true;
+
+		private TestWalker(WorldMapInstance instance, int objectId, float x, float y, float endX, float endY)
+		{
+			WorldPosition position = new WorldPosition();
+			position.setXYZH(x, y, 100, (byte) 0);
+			position.setIsSpawned(true);
+			this.owner = new VisibleObject(objectId, null, null, null, position){
+				@Override
+				public String getName()
+				{
+					return "walker";
+				}
+			};
+			MapRegion region = instance.getRegion(owner);
+			region.add(owner);
+			position.setMapRegion(region);
+
+			this.startX = x;
+			this.startY = y;
+			this.endX = endX;
+			this.endY = endY;
+			this.targetX = endX;
+			this.targetY = endY;
+		}
+
+		@Override
+		public VisibleObject getOwner()
+		{
+			return owner;
+		}
+
+		@Override
+		public boolean prepareStep()
+		{
+			return true;
+		}
+
+		@Override
+		public float getTargetX()
+		{
+			return targetX;
+		}
+
+		@Override
+		public float getTargetY()
+		{
+			return targetY;
+		}
+
+		@Override
+		public float getTargetZ()
+		{
+			return 100;
+		}
+
+		@Override
+		public float getSpeed()
+		{
+			return 6;
+		}
+
+		@Override
+		public float getDistance()
+		{
+			return 2;
+		}
+
+		/**
+		 * Same as {@link World#updatePosition(VisibleObject, float, float, float, byte, boolean)}.
+		 */
+		@Override
+		public int onStep(float x, float y, float z, byte heading)
+		{
+			WorldPosition position = owner.getPosition();
+			position.setXYZH(x, y, z, heading);
+			MapRegion oldRegion = owner.getActiveRegion();
+			MapRegion newRegion = oldRegion.getParent().getRegion(owner);
+			if(newRegion != oldRegion)
+			{
+				newRegion.add(owner);
+				oldRegion.remove(owner);
+				position.setMapRegion(newRegion);
+			}
+
+			steps++;
+			int flags = 0;
+			if(directionChanged)
+			{
+				directionChanged = false;
+				flags |= MovementIntegrator.STEP_DIRECTION;
+			}
+			return flags;
+		}
+
+		@Override
+		public void onDirectionChanged(float x, float y, float z, float vx, float vy, byte heading)
+		{
+			directionChanges++;
+		}
+
+		@Override
+		public void onArrived()
+		{
+			arrivals++;
+			directionChanged = true;
+			boolean atEnd = targetX == endX && targetY == endY;
+			targetX = atEnd ? startX : endX;
+			targetY = atEnd ? startY : endY;
+		}
+
+		/**
+		 * One step done by walker itself, as its own move task did.
+		 */
+		void move()
+		{
+			float ownerX = owner.getX();
+			float ownerY = owner.getY();
+			float ownerZ = owner.getZ();
+
+			float vx = targetX - ownerX;
+			float vy = targetY - ownerY;
+			float vz = getTargetZ() - ownerZ;
+			float distSquared = vx * vx + vy * vy + vz * vz;
+			if(distSquared > getDistance() * getDistance())
+			{
+				float factor = (float) (getSpeed() * 0.2f / Math.sqrt(distSquared));
+				float dx = vx * factor;
+				float dy = vy * factor;
+				byte heading = (byte) (Math.toDegrees(Math.atan2(dy, dx)) / 3);
+				if((onStep(ownerX + dx, ownerY + dy, ownerZ + vz * factor, heading) & MovementIntegrator.STEP_DIRECTION) != 0)
+					onDirectionChanged(ownerX, ownerY, ownerZ, dx / 0.2f, dy / 0.2f, heading);
+			}
+			else
+				onArrived();
+		}
+	}
+}
@@ -0,0 +1,157 @@
+/**
+ * This file is part of aion-emu <aion-emu.com>.
+ *
+ *  aion-emu is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-emu is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-emu.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.world;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.aionemu.gameserver.model.gameobjects.VisibleObject;
+
+/**
+ * Compares number of objects examined by known list update with old 500 m regions and with default regions, on map
+ * with dense spawns.
+ * 
+ * @author ATracer
+ */
+public class WorldMapInstanceTest
+{
+	private static final int	OBJECTS	= 20000;
+	private static final int	QUERIES	= 500;
+
+	@Test
+	public void testObjectsExaminedPerQuery()
+	{
+		List<VisibleObject> objects = createObjects();
+
+		WorldMapInstance oldInstance = createInstance(500, objects);
+		WorldMapInstance newInstance = createInstance(WorldMapInstance.DEFAULT_CELL_SIZE, objects);
+
+		Random rnd = new Random(5);
+		long oldExamined = 0;
+		long newExamined = 0;
+		for(int i = 0; i < QUERIES; i++)
+		{
+			VisibleObject owner = objects.get(rnd.nextInt(objects.size()));
+			oldExamined += countExamined(oldInstance, owner, false);
+			newExamined += countExamined(newInstance, owner, true);
+		}
+
+		Assert.assertTrue(newExamined * 2 < oldExamined);
+	}
+
+	@Test
+	public void testNoVisibleObjectMissed()
+	{
+		List<VisibleObject> objects = createObjects();
+		for(int regionSize : new int[] { 30, 50, WorldMapInstance.DEFAULT_CELL_SIZE, 500 })
+		{
+			WorldMapInstance instance = createInstance(regionSize, objects);
+			Random rnd = new Random(regionSize);
+			for(int i = 0; i < 50; i++)
+			{
+				VisibleObject owner = objects.get(rnd.nextInt(objects.size()));
+				Set<VisibleObject> examined = new HashSet<VisibleObject>(examinedObjects(instance, owner, true));
+				for(VisibleObject object : objects)
+				{
+					if(Math.hypot(object.getX() - owner.getX(), object.getY() - owner.getY()) <= KnownList.VisibilityDistance)
+						Assert.assertTrue("region size " + regionSize, examined.contains(object));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Spawns are spread over 3000 x 3000 map, half of them crowded in 300 x 300 town.
+	 */
+	private static List<VisibleObject> createObjects()
+	{
+		Random rnd = new Random(3);
+		List<VisibleObject> objects = new ArrayList<VisibleObject>();
+		for(int i = 0; i < OBJECTS; i++)
+		{
+			float x, y;
+			if(i % 2 == 0)
+			{
+				x = 1000 + rnd.nextFloat() * 3000;
+				y = 1000 + rnd.nextFloat() * 3000;
+			}
+			else
+			{
+				x = 2000 + rnd.nextFloat() * 300;
+				y = 2000 + rnd.nextFloat() * 300;
+			}
+			WorldPosition position = new WorldPosition();
+			position.setXYZH(x, y, 100, (byte) 0);
+			objects.add(new TestObject(i + 1, position));
+		}
+		return objects;
+	}
+
+	private static WorldMapInstance createInstance(int regionSize, List<VisibleObject> objects)
+	{
+		WorldMapInstance instance = new WorldMapInstance(null, 1, regionSize);
+		for(VisibleObject object : objects)
+			instance.getRegion(object).add(object);
+		return instance;
+	}
+
+	private static int countExamined(WorldMapInstance instance, VisibleObject owner, boolean checkRange)
+	{
+		return examinedObjects(instance, owner, checkRange).size();
+	}
+
+	/**
+	 * Same regions as are scanned by {@link KnownList#findVisibleObjects()}.
+	 */
+	private static List<VisibleObject> examinedObjects(WorldMapInstance instance, VisibleObject owner,
+		boolean checkRange)
+	{
+		List<VisibleObject> examined = new ArrayList<VisibleObject>();
+		MapRegion ownerRegion = instance.getRegion(owner);
+		Iterator<MapRegion> neighboursIt = ownerRegion.getNeighboursIterator();
+		while(neighboursIt.hasNext())
+		{
+			MapRegion r = neighboursIt.next();
+			if(checkRange && r != ownerRegion && !r.isInRange(owner.getX(), owner.getY(), KnownList.VisibilityDistance))
+				continue;
+			examined.addAll(r.getObjects());
+		}
+		return examined;
+	}
+
+	private static class TestObject extends VisibleObject
+	{
+		private TestObject(int objId, WorldPosition position)
+		{
+			super(objId, null, null, null, position);
+		}
+
+		@Override
+		public String getName()
+		{
+			return "test";
+		}
+	}
+}
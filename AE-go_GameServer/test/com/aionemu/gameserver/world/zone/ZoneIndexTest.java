@@ -0,0 +1,156 @@
+/*
+ * This file is part of aion-emu <aion-emu.com>.
+ *
+ *  aion-emu is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  aion-emu is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with aion-emu.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.aionemu.gameserver.world.zone;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Unmarshaller;
+
+import junit.framework.Assert;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.aionemu.gameserver.dataholders.ZoneData;
+import com.aionemu.gameserver.model.templates.zone.ZoneTemplate;
+
+/**
+ * Checks {@link ZoneIndex} against linear scan of all zones of the map, using zones from static data.
+ * 
+ * @author ATracer
+ */
+public class ZoneIndexTest
+{
+	private static Map<Integer, List<ZoneInstance>>	zonesByMap;
+
+	@BeforeClass
+	public static void setUp() throws Exception
+	{
+		zonesByMap = loadZones();
+		Assert.assertFalse(zonesByMap.isEmpty());
+	}
+
+	/**
+	 * @return zones from static data by map id, sorted by priority.
+	 */
+	static Map<Integer, List<ZoneInstance>> loadZones() throws Exception
+	{
+		File[] files = new File("data/static_data/zones").listFiles(new FilenameFilter(){
+			@Override
+			public boolean accept(File dir, String name)
+			{
+				return name.endsWith(".xml");
+			}
+		});
+		Assert.assertNotNull(files);
+
+		Unmarshaller unmarshaller = JAXBContext.newInstance(ZoneData.class).createUnmarshaller();
+		Map<Integer, List<ZoneInstance>> zonesByMap = new HashMap<Integer, List<ZoneInstance>>();
+		for(File file : files)
+		{
+			ZoneData zoneData = (ZoneData) unmarshaller.unmarshal(file);
+			for(ZoneTemplate template : zoneData)
+			{
+				List<ZoneInstance> zones = zonesByMap.get(template.getMapid());
+				if(zones == null)
+				{
+					zones = new ArrayList<ZoneInstance>();
+					zonesByMap.put(template.getMapid(), zones);
+				}
+				zones.add(new ZoneInstance(template));
+			}
+		}
+
+		for(List<ZoneInstance> zones : zonesByMap.values())
+		{
+			Collections.sort(zones, new Comparator<ZoneInstance>(){
+				@Override
+				public int compare(ZoneInstance o1, ZoneInstance o2)
+				{
+					return o1.getPriority() - o2.getPriority();
+				}
+			});
+		}
+		return zonesByMap;
+	}
+
+	@Test
+	public void testSameZoneAsLinearScan()
+	{
+		Random rnd = new Random(5);
+		for(List<ZoneInstance> zones : zonesByMap.values())
+		{
+			ZoneIndex index = new ZoneIndex(zones, 64);
+			float[] points = randomPoints(rnd, zones, 20000);
+			for(int i = 0; i < points.length; i += 3)
+			{
+				Assert.assertSame(findLinear(zones, points[i], points[i + 1], points[i + 2]), index.findZone(
+					points[i], points[i + 1], points[i + 2]));
+			}
+		}
+	}
+
+	@Test
+	public void testEmptyIndex()
+	{
+		ZoneIndex index = new ZoneIndex(new ArrayList<ZoneInstance>(), 64);
+		Assert.assertNull(index.findZone(100, 100, 100));
+	}
+
+	static ZoneInstance findLinear(List<ZoneInstance> zones, float x, float y, float z)
+	{
+		for(ZoneInstance zone : zones)
+		{
+			if(zone.isInside(x, y, z))
+				return zone;
+		}
+		return null;
+	}
+
+	/**
+	 * Random points within area covered by zones, slightly enlarged so some points miss every zone.
+	 */
+	static float[] randomPoints(Random rnd, List<ZoneInstance> zones, int count)
+	{
+		float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+		float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+		for(ZoneInstance zone : zones)
+		{
+			minX = Math.min(minX, zone.getMinX());
+			minY = Math.min(minY, zone.getMinY());
+			maxX = Math.max(maxX, zone.getMaxX());
+			maxY = Math.max(maxY, zone.getMaxY());
+		}
+		float[] points = new float[count * 3];
+		for(int i = 0; i < points.length; i += 3)
+		{
+			points[i] = minX - 50 + rnd.nextFloat() * (maxX - minX + 100);
+			points[i + 1] = minY - 50 + rnd.nextFloat() * (maxY - minY + 100);
+			points[i + 2] = rnd.nextFloat() * 1000;
+		}
+		return points;
+	}
+}